@@ -19,11 +19,23 @@ public class AbhanActivity extends Activity implements OnFlipListener {
 		adapter = new FlipAdapter(this);
 		flipView.setAdapter(adapter);
 		flipView.setOnFlipListener(this);
-		flipView.peakNext(false);
+		flipView.peakNext(3);
 	}
 
 	@Override
 	public void onFlippedToPage(FlipView view, int position, long id) {
 		android.util.Log.i("Abhan", "I am called");
 	}
+
+	@Override
+	public void onLowMemory() {
+		super.onLowMemory();
+		flipView.trimMemory(FlipView.TRIM_MEMORY_COMPLETE);
+	}
+
+	@Override
+	public void onTrimMemory(int level) {
+		super.onTrimMemory(level);
+		flipView.trimMemory(level);
+	}
 }
\ No newline at end of file
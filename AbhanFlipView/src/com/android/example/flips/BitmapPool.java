@@ -0,0 +1,206 @@
+package com.android.example.flips;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.v4.util.LongSparseArray;
+
+public class BitmapPool {
+
+	private static class Entry {
+		long key;
+		Bitmap bitmap;
+		// The bucket is newest first, the LRU least recently released first.
+		Entry bucketNext;
+		Entry bucketPrevious;
+		Entry lruNext;
+		Entry lruPrevious;
+	}
+
+	private final LongSparseArray<Entry> mBuckets = new LongSparseArray<Entry>();
+	private Entry mLruHead;
+	private Entry mLruTail;
+	// Entries are reused so releasing a bitmap doesn't allocate.
+	private Entry mSpare;
+	private long mMaxBytes;
+	private long mPooledBytes;
+	private int mPooledCount;
+
+	private int mHitCount;
+	private int mMissCount;
+	private int mEvictionCount;
+
+	public BitmapPool(long maxBytes) {
+		setMaxBytes(maxBytes);
+	}
+
+	private static long keyFor(int width, int height, Bitmap.Config config) {
+		return (long) width << 32 | (long) height << 8 | config.ordinal();
+	}
+
+	private static long keyFor(Bitmap bitmap) {
+		return keyFor(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+	}
+
+	private void unlink(Entry entry) {
+		if (entry.bucketNext != null) {
+			entry.bucketNext.bucketPrevious = entry.bucketPrevious;
+		}
+		if (entry.bucketPrevious != null) {
+			entry.bucketPrevious.bucketNext = entry.bucketNext;
+		} else if (entry.bucketNext != null) {
+			mBuckets.put(entry.key, entry.bucketNext);
+		} else {
+			mBuckets.remove(entry.key);
+		}
+		if (entry.lruNext != null) {
+			entry.lruNext.lruPrevious = entry.lruPrevious;
+		} else {
+			mLruTail = entry.lruPrevious;
+		}
+		if (entry.lruPrevious != null) {
+			entry.lruPrevious.lruNext = entry.lruNext;
+		} else {
+			mLruHead = entry.lruNext;
+		}
+		mPooledBytes -= sizeOf(entry.bitmap);
+		mPooledCount--;
+		entry.bitmap = null;
+		entry.bucketPrevious = null;
+		entry.lruPrevious = null;
+		entry.lruNext = null;
+		entry.bucketNext = mSpare;
+		mSpare = entry;
+	}
+
+	static long sizeOf(Bitmap bitmap) {
+		return (long) bitmap.getRowBytes() * bitmap.getHeight();
+	}
+
+	/**
+	 * Returns a cleared bitmap of the given size and config, or null if one
+	 * can't be allocated.
+	 */
+	public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+		final Entry entry = mBuckets.get(keyFor(width, height, config));
+		if (entry != null) {
+			final Bitmap bitmap = entry.bitmap;
+			unlink(entry);
+			mHitCount++;
+			bitmap.eraseColor(Color.TRANSPARENT);
+			return bitmap;
+		}
+		mMissCount++;
+		try {
+			return Bitmap.createBitmap(width, height, config);
+		} catch (OutOfMemoryError e) {
+			// Whatever sits in the pool is the wrong shape, give it back.
+			trimToSize(0);
+			try {
+				return Bitmap.createBitmap(width, height, config);
+			} catch (OutOfMemoryError e2) {
+				return null;
+			}
+		}
+	}
+
+	public synchronized void put(Bitmap bitmap) {
+		if (bitmap == null || bitmap.isRecycled()) {
+			return;
+		}
+		final long size = sizeOf(bitmap);
+		// A config the platform doesn't expose can't be keyed or handed out.
+		if (!bitmap.isMutable() || bitmap.getConfig() == null || size > mMaxBytes) {
+			bitmap.recycle();
+			mEvictionCount++;
+			return;
+		}
+		Entry entry = mSpare;
+		if (entry != null) {
+			mSpare = entry.bucketNext;
+		} else {
+			entry = new Entry();
+		}
+		entry.key = keyFor(bitmap);
+		entry.bitmap = bitmap;
+		entry.bucketNext = mBuckets.get(entry.key);
+		if (entry.bucketNext != null) {
+			entry.bucketNext.bucketPrevious = entry;
+		}
+		mBuckets.put(entry.key, entry);
+		entry.lruPrevious = mLruTail;
+		if (mLruTail != null) {
+			mLruTail.lruNext = entry;
+		} else {
+			mLruHead = entry;
+		}
+		mLruTail = entry;
+		mPooledBytes += size;
+		mPooledCount++;
+		trimToSize(mMaxBytes);
+	}
+
+	/**
+	 * Evicts the least recently released bitmaps until at most the given
+	 * number of bytes is pooled. Returns the bytes released.
+	 */
+	public synchronized long trimToSize(long maxBytes) {
+		long released = 0;
+		while (mPooledBytes > maxBytes && mLruHead != null) {
+			final Bitmap bitmap = mLruHead.bitmap;
+			unlink(mLruHead);
+			released += sizeOf(bitmap);
+			bitmap.recycle();
+			mEvictionCount++;
+		}
+		return released;
+	}
+
+	public synchronized long clear() {
+		final long released = trimToSize(0);
+		mSpare = null;
+		return released;
+	}
+
+	public synchronized void setMaxBytes(long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("Can't have a negative pool size");
+		}
+		mMaxBytes = maxBytes;
+		trimToSize(maxBytes);
+	}
+
+	public synchronized long getMaxBytes() {
+		return mMaxBytes;
+	}
+
+	public synchronized long getPooledBytes() {
+		return mPooledBytes;
+	}
+
+	public synchronized int getPooledCount() {
+		return mPooledCount;
+	}
+
+	public synchronized int getHitCount() {
+		return mHitCount;
+	}
+
+	public synchronized int getMissCount() {
+		return mMissCount;
+	}
+
+	public synchronized float getReuseRatio() {
+		final int requests = mHitCount + mMissCount;
+		return requests == 0 ? 0 : (float) mHitCount / requests;
+	}
+
+	public synchronized int getEvictionCount() {
+		return mEvictionCount;
+	}
+
+	public synchronized void resetStats() {
+		mHitCount = 0;
+		mMissCount = 0;
+		mEvictionCount = 0;
+	}
+}
@@ -0,0 +1,134 @@
+package com.android.example.flips;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+public class CurlFlipRenderer implements FlipRenderer {
+
+	private static final int MESH_ALONG = 24;
+	private static final int MESH_ACROSS = 4;
+	private static final int VERTEX_COUNT = (MESH_ALONG + 1) * (MESH_ACROSS + 1);
+	private static final float RADIUS_FRACTION = 0.12f;
+	private static final float LIFT_SPREAD = 0.5f;
+	private static final int MAX_SHADOW_ALPHA = 120;
+	private static final int MAX_CURL_SHADE = 110;
+	private static final int BACK_SHADE = 70;
+
+	// Everything a frame needs is allocated once, a frame only rewrites it.
+	private final float[] mVerts = new float[VERTEX_COUNT * 2];
+	private final int[] mColors = new int[VERTEX_COUNT];
+	private final float[] mRestAlong = new float[MESH_ALONG + 1];
+	private final float[] mRestAcross = new float[MESH_ACROSS + 1];
+	private final float[] mCurledAlong = new float[MESH_ALONG + 1];
+	private final float[] mSpread = new float[MESH_ALONG + 1];
+	private final int[] mShades = new int[MESH_ALONG + 1];
+
+	private FlipLighting mLighting = new FlipLighting();
+	private Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+	private int mWidth = -1;
+	private int mHeight = -1;
+	private boolean mVertical;
+
+	@Override
+	public boolean isHalfLocal() {
+		return false;
+	}
+
+	private void setup(int width, int height, boolean vertical) {
+		if (width == mWidth && height == mHeight && vertical == mVertical) {
+			return;
+		}
+		mWidth = width;
+		mHeight = height;
+		mVertical = vertical;
+		final float along = vertical ? height : width;
+		final float across = vertical ? width : height;
+		for (int i = 0; i <= MESH_ALONG; i++) {
+			mRestAlong[i] = along * i / MESH_ALONG;
+		}
+		for (int i = 0; i <= MESH_ACROSS; i++) {
+			mRestAcross[i] = across * i / MESH_ACROSS;
+		}
+	}
+
+	@Override
+	public void drawFlip(Canvas canvas, FlipFrame frame) {
+		setup(frame.getWidth(), frame.getHeight(), frame.isVertical());
+		final int effectLevel = frame.getEffectLevel();
+		final float progress = frame.getDegrees() / 180f;
+		final float length = mVertical ? mHeight : mWidth;
+		final float radius = length * RADIUS_FRACTION;
+		// The source page rolls up from its far edge around a cylinder whose
+		// axis sweeps across the page, off it entirely at 180 degrees.
+		final float axis = length - progress * (length + (float) Math.PI * radius);
+
+		long start = frame.startStage();
+		final int shadowAlpha = effectLevel < FrameBudgetGovernor.LEVEL_NO_SHADOWS
+				? (int) ((1 - progress) * MAX_SHADOW_ALPHA) : 0;
+		frame.drawDestination(canvas, mLighting.darken(shadowAlpha), false);
+		frame.endStage(FlipFrameStats.STAGE_DRAW_NEXT, start);
+
+		start = frame.startStage();
+		final Bitmap source = frame.getSourceBitmap(true);
+		if (source == null) {
+			// Without a bitmap there is nothing to bend, wipe the page flat.
+			canvas.save();
+			if (mVertical) {
+				canvas.clipRect(0, 0, mWidth, Math.max(0, axis));
+			} else {
+				canvas.clipRect(0, 0, Math.max(0, axis), mHeight);
+			}
+			frame.drawSource(canvas, null, false);
+			canvas.restore();
+		} else {
+			computeCurl(axis, radius, length);
+			final int meshWidth = mVertical ? MESH_ACROSS : MESH_ALONG;
+			final int meshHeight = mVertical ? MESH_ALONG : MESH_ACROSS;
+			final float center = (mVertical ? mWidth : mHeight) / 2f;
+			int i = 0;
+			for (int row = 0; row <= meshHeight; row++) {
+				for (int column = 0; column <= meshWidth; column++) {
+					final int along = mVertical ? row : column;
+					final float across = center + (mRestAcross[mVertical ? column : row] - center)
+							* mSpread[along];
+					mVerts[2 * i] = mVertical ? across : mCurledAlong[along];
+					mVerts[2 * i + 1] = mVertical ? mCurledAlong[along] : across;
+					mColors[i] = mShades[along];
+					i++;
+				}
+			}
+			canvas.drawBitmapMesh(source, meshWidth, meshHeight, mVerts, 0,
+					effectLevel < FrameBudgetGovernor.LEVEL_NO_SHADE ? mColors : null, 0,
+					mPaint);
+		}
+		frame.endStage(FlipFrameStats.STAGE_DRAW_FLIPPING, start);
+	}
+
+	private void computeCurl(float axis, float radius, float length) {
+		final float halfTurn = (float) Math.PI * radius;
+		for (int i = 0; i <= MESH_ALONG; i++) {
+			final float distance = mRestAlong[i] - axis;
+			float lift = 0;
+			int shade = 0;
+			if (distance <= 0) {
+				mCurledAlong[i] = mRestAlong[i];
+			} else if (distance < halfTurn) {
+				final float angle = distance / radius;
+				final float cos = (float) Math.cos(angle);
+				mCurledAlong[i] = axis + radius * (float) Math.sin(angle);
+				lift = radius * (1 - cos);
+				shade = (int) (MAX_CURL_SHADE * (1 - cos) / 2);
+			} else {
+				// Past the top of the cylinder the page lies flat, face down.
+				mCurledAlong[i] = axis - (distance - halfTurn);
+				lift = 2 * radius;
+				shade = BACK_SHADE;
+			}
+			// Lifted parts spread out a little, as if nearer the eye.
+			mSpread[i] = 1 + LIFT_SPREAD * lift / length;
+			final int light = 255 - shade;
+			mShades[i] = 0xff000000 | light << 16 | light << 8 | light;
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package com.android.example.flips;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import android.graphics.Bitmap;
+
+/**
+ * Keeps page snapshots on disk across launches, keyed by the adapter's
+ * stable id and the view size. Files are a small header followed by the raw
+ * pixels, so reading one back is a mapped copy straight into a bitmap.
+ */
+public class DiskSnapshotStore {
+
+	private static final int MAGIC = 0x464c5053;
+	private static final int HEADER_SIZE = 16;
+	private static final String SUFFIX = ".snap";
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private static final Comparator<File> sLeastRecentlyUsedFirst = new Comparator<File>() {
+
+		@Override
+		public int compare(File lhs, File rhs) {
+			final long l = lhs.lastModified();
+			final long r = rhs.lastModified();
+			return l < r ? -1 : l == r ? 0 : 1;
+		}
+	};
+
+	private final File mDirectory;
+	private long mMaxBytes;
+	private long mSizeBytes = -1;
+
+	private int mHitCount;
+	private int mMissCount;
+
+	public DiskSnapshotStore(File directory, long maxBytes) {
+		if (directory == null) {
+			throw new IllegalArgumentException("Directory can't be null");
+		}
+		mDirectory = directory;
+		setMaxBytes(maxBytes);
+	}
+
+	private File fileFor(long id, int width, int height) {
+		return new File(mDirectory, id + "_" + width + "x" + height + SUFFIX);
+	}
+
+	public boolean contains(long id, int width, int height) {
+		return fileFor(id, width, height).exists();
+	}
+
+	/**
+	 * Returns the stored snapshot in a bitmap from the given pool, or null if
+	 * there is none or it can't be read.
+	 */
+	public Bitmap get(long id, int width, int height, BitmapPool pool) {
+		final File file = fileFor(id, width, height);
+		if (!file.exists()) {
+			synchronized (this) {
+				mMissCount++;
+			}
+			return null;
+		}
+		RandomAccessFile input = null;
+		Bitmap bitmap = null;
+		try {
+			input = new RandomAccessFile(file, "r");
+			final FileChannel channel = input.getChannel();
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+			final Bitmap.Config[] configs = Bitmap.Config.values();
+			if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC
+					|| buffer.getInt() != width || buffer.getInt() != height) {
+				throw new IOException("Bad snapshot header");
+			}
+			final int config = buffer.getInt();
+			if (config < 0 || config >= configs.length) {
+				throw new IOException("Bad snapshot config");
+			}
+			bitmap = pool.get(width, height, configs[config]);
+			if (bitmap == null || BitmapPool.sizeOf(bitmap) != buffer.remaining()) {
+				throw new IOException("Snapshot size doesn't match");
+			}
+			bitmap.copyPixelsFromBuffer(buffer);
+			file.setLastModified(System.currentTimeMillis());
+			synchronized (this) {
+				mHitCount++;
+			}
+			return bitmap;
+		} catch (IOException e) {
+			if (bitmap != null) {
+				pool.put(bitmap);
+			}
+			remove(file);
+			synchronized (this) {
+				mMissCount++;
+			}
+			return null;
+		} finally {
+			close(input);
+		}
+	}
+
+	/**
+	 * Writes the bitmap under the given id. Does disk I/O, so it belongs on a
+	 * background thread.
+	 */
+	public void put(long id, Bitmap bitmap) {
+		final int width = bitmap.getWidth();
+		final int height = bitmap.getHeight();
+		final File file = fileFor(id, width, height);
+		final File temp = new File(mDirectory, file.getName() + TEMP_SUFFIX);
+		final long length = HEADER_SIZE + BitmapPool.sizeOf(bitmap);
+		if (length > mMaxBytes || !mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+			return;
+		}
+		RandomAccessFile output = null;
+		boolean written = false;
+		try {
+			output = new RandomAccessFile(temp, "rw");
+			output.setLength(length);
+			final MappedByteBuffer buffer = output.getChannel().map(
+					FileChannel.MapMode.READ_WRITE, 0, length);
+			buffer.putInt(MAGIC);
+			buffer.putInt(width);
+			buffer.putInt(height);
+			buffer.putInt(bitmap.getConfig().ordinal());
+			bitmap.copyPixelsToBuffer(buffer);
+			written = true;
+		} catch (IOException e) {
+			// Left to the delete below.
+		} finally {
+			close(output);
+		}
+		if (!written) {
+			temp.delete();
+			return;
+		}
+
+		synchronized (this) {
+			ensureSize();
+			mSizeBytes -= file.length();
+			if (!temp.renameTo(file)) {
+				temp.delete();
+				mSizeBytes += file.length();
+				return;
+			}
+			mSizeBytes += length;
+			if (mSizeBytes > mMaxBytes) {
+				trimToSize(mMaxBytes);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the least recently used snapshots until at most the given
+	 * number of bytes is stored. Returns the bytes deleted.
+	 */
+	public synchronized long trimToSize(long maxBytes) {
+		ensureSize();
+		if (mSizeBytes <= maxBytes) {
+			return 0;
+		}
+		final File[] files = listSnapshots();
+		Arrays.sort(files, sLeastRecentlyUsedFirst);
+		long released = 0;
+		for (int i = 0; i < files.length && mSizeBytes > maxBytes; i++) {
+			final long length = files[i].length();
+			if (files[i].delete()) {
+				mSizeBytes -= length;
+				released += length;
+			}
+		}
+		return released;
+	}
+
+	public synchronized void clear() {
+		for (File file : listSnapshots()) {
+			file.delete();
+		}
+		mSizeBytes = 0;
+	}
+
+	private synchronized void remove(File file) {
+		ensureSize();
+		final long length = file.length();
+		if (file.delete()) {
+			mSizeBytes -= length;
+		}
+	}
+
+	private void ensureSize() {
+		if (mSizeBytes >= 0) {
+			return;
+		}
+		mSizeBytes = 0;
+		for (File file : listSnapshots()) {
+			mSizeBytes += file.length();
+		}
+	}
+
+	private File[] listSnapshots() {
+		final File[] files = mDirectory.listFiles();
+		if (files == null) {
+			return new File[0];
+		}
+		int count = 0;
+		for (File file : files) {
+			if (file.getName().endsWith(SUFFIX)) {
+				files[count++] = file;
+			}
+		}
+		final File[] snapshots = new File[count];
+		System.arraycopy(files, 0, snapshots, 0, count);
+		return snapshots;
+	}
+
+	private static void close(RandomAccessFile file) {
+		if (file != null) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				// Nothing left to do with it.
+			}
+		}
+	}
+
+	public synchronized void setMaxBytes(long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("Can't have a negative store size");
+		}
+		mMaxBytes = maxBytes;
+		if (mSizeBytes >= 0) {
+			trimToSize(maxBytes);
+		}
+	}
+
+	public synchronized long getMaxBytes() {
+		return mMaxBytes;
+	}
+
+	public synchronized long getSizeBytes() {
+		ensureSize();
+		return mSizeBytes;
+	}
+
+	public synchronized int getHitCount() {
+		return mHitCount;
+	}
+
+	public synchronized int getMissCount() {
+		return mMissCount;
+	}
+}
@@ -0,0 +1,383 @@
+package com.android.example.flips;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+/**
+ * An adapter for documents whose pages are drawn rather than laid out. Pages
+ * are rendered into pooled bitmaps on one worker per core, nearest the
+ * current page first, and renders that leave FlipView's page window are
+ * cancelled. Subclasses only implement getCount and onRenderPage.
+ */
+public abstract class DocumentPageAdapter extends BaseAdapter implements FlipView.PageRenderer,
+		FlipView.FocusAwareAdapter {
+
+	private static final int DEFAULT_BITMAP_POOL_FRACTION = 8;
+	private static final int PLACEHOLDER_COLOR = 0xffffffff;
+
+	private static final ThreadFactory sThreadFactory = new ThreadFactory() {
+		private final AtomicInteger mCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					runnable.run();
+				}
+			}, "DocumentPageAdapter #" + mCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	};
+
+	private class RenderTask implements Runnable, Comparable<RenderTask> {
+		final int position;
+		final int generation;
+		final int width;
+		final int height;
+		final long sequence;
+		int distance;
+		volatile boolean cancelled;
+		Bitmap bitmap;
+
+		RenderTask(int position, int generation, int width, int height, long sequence) {
+			this.position = position;
+			this.generation = generation;
+			this.width = width;
+			this.height = height;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(RenderTask another) {
+			if (distance != another.distance) {
+				return distance < another.distance ? -1 : 1;
+			}
+			return sequence < another.sequence ? -1 : sequence == another.sequence ? 0 : 1;
+		}
+
+		@Override
+		public void run() {
+			if (!cancelled && generation == mGeneration) {
+				bitmap = mPool.get(width, height, Bitmap.Config.ARGB_8888);
+				if (bitmap != null) {
+					onRenderPage(position, new Canvas(bitmap), width, height);
+				}
+			}
+			mFinished.offer(this);
+			if (mDrainPosted.compareAndSet(false, true)) {
+				mHandler.post(mDrain);
+			}
+		}
+	}
+
+	public static class DocumentPageView extends View {
+		private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+		private final Rect mBounds = new Rect();
+		private DocumentPageAdapter mAdapter;
+		private int mPosition = -1;
+		private Bitmap mBitmap;
+
+		public DocumentPageView(Context context) {
+			super(context);
+		}
+
+		public int getPosition() {
+			return mPosition;
+		}
+
+		void bind(DocumentPageAdapter adapter, int position, Bitmap bitmap) {
+			mAdapter = adapter;
+			mPosition = position;
+			setBitmap(bitmap);
+		}
+
+		void setBitmap(Bitmap bitmap) {
+			if (bitmap != mBitmap) {
+				mBitmap = bitmap;
+				invalidate();
+			}
+		}
+
+		@Override
+		protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+			super.onSizeChanged(w, h, oldw, oldh);
+			if (mAdapter != null) {
+				mAdapter.setPageSize(w, h);
+			}
+		}
+
+		@Override
+		protected void onDraw(Canvas canvas) {
+			if (mBitmap != null) {
+				mBounds.set(0, 0, getWidth(), getHeight());
+				canvas.drawBitmap(mBitmap, null, mBounds, mPaint);
+			} else {
+				canvas.drawColor(PLACEHOLDER_COLOR);
+			}
+		}
+	}
+
+	private final ThreadPoolExecutor mExecutor;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final ConcurrentLinkedQueue<RenderTask> mFinished = new ConcurrentLinkedQueue<RenderTask>();
+	private final AtomicBoolean mDrainPosted = new AtomicBoolean();
+	private final SparseArray<RenderTask> mTasks = new SparseArray<RenderTask>();
+	private final SparseArray<Bitmap> mRendered = new SparseArray<Bitmap>();
+	// Weak, views dropped by the recycler or a memory trim aren't told.
+	private final ArrayList<WeakReference<DocumentPageView>> mViews =
+			new ArrayList<WeakReference<DocumentPageView>>();
+	// Read by the workers, swapped by setBitmapPool() and getView().
+	private volatile BitmapPool mPool;
+	private boolean mPoolSet;
+	private WeakReference<FlipView> mFlipView;
+
+	private volatile int mGeneration;
+	private long mSequence;
+	private int mFocus;
+	private int mWindowFirst;
+	private int mWindowLast;
+	private int mPageWidth;
+	private int mPageHeight;
+
+	private final Runnable mDrain = new Runnable() {
+
+		@Override
+		public void run() {
+			mDrainPosted.set(false);
+			RenderTask task;
+			while ((task = mFinished.poll()) != null) {
+				if (mTasks.get(task.position) == task) {
+					mTasks.remove(task.position);
+				}
+				if (task.bitmap == null) {
+					continue;
+				}
+				if (task.cancelled || task.generation != mGeneration || !isInWindow(task.position)) {
+					mPool.put(task.bitmap);
+					continue;
+				}
+				setRendered(task.position, task.bitmap);
+			}
+		}
+	};
+
+	public DocumentPageAdapter() {
+		final int cores = Math.max(1, Runtime.getRuntime().availableProcessors());
+		mExecutor = new ThreadPoolExecutor(cores, cores, 1, TimeUnit.SECONDS,
+				new PriorityBlockingQueue<Runnable>(), sThreadFactory);
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+			// Idle workers go away, so an adapter dropped without shutdown() is freed.
+			mExecutor.allowCoreThreadTimeOut(true);
+		}
+		mPool = new BitmapPool(Runtime.getRuntime().maxMemory() / DEFAULT_BITMAP_POOL_FRACTION);
+	}
+
+	/**
+	 * Draws the page into the canvas. Called on worker threads, possibly for
+	 * several pages at once, so it must not touch views.
+	 */
+	protected abstract void onRenderPage(int position, Canvas canvas, int width, int height);
+
+	@Override
+	public boolean renderPage(int position, Canvas canvas, int width, int height) {
+		onRenderPage(position, canvas, width, height);
+		return true;
+	}
+
+	@Override
+	public Object getItem(int position) {
+		return position;
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return position;
+	}
+
+	@Override
+	public boolean hasStableIds() {
+		return true;
+	}
+
+	@Override
+	public View getView(int position, View convertView, ViewGroup parent) {
+		if (parent instanceof FlipView && getFlipView() != parent) {
+			final FlipView flipView = (FlipView) parent;
+			mFlipView = new WeakReference<FlipView>(flipView);
+			if (!mPoolSet) {
+				mPool = flipView.getBitmapPool();
+			}
+		}
+		DocumentPageView view;
+		if (convertView instanceof DocumentPageView) {
+			view = (DocumentPageView) convertView;
+		} else {
+			view = new DocumentPageView(parent.getContext());
+			mViews.add(new WeakReference<DocumentPageView>(view));
+		}
+		view.bind(this, position, mRendered.get(position));
+		if (mRendered.get(position) == null) {
+			requestRender(position);
+		}
+		return view;
+	}
+
+	public void setBitmapPool(BitmapPool pool) {
+		if (pool == null) {
+			throw new IllegalArgumentException("BitmapPool can't be null");
+		}
+		mPool = pool;
+		mPoolSet = true;
+	}
+
+	/**
+	 * Moves the render window. Renders outside the window are cancelled or
+	 * released and the rest are reordered to start nearest the focus.
+	 */
+	@Override
+	public void setFocusPosition(int focus, int pagesBefore, int pagesAfter) {
+		mFocus = focus;
+		mWindowFirst = Math.max(0, focus - pagesBefore);
+		mWindowLast = Math.min(getCount() - 1, focus + pagesAfter);
+
+		for (int i = mTasks.size() - 1; i >= 0; i--) {
+			final RenderTask task = mTasks.valueAt(i);
+			if (!isInWindow(task.position)) {
+				task.cancelled = true;
+				mExecutor.remove(task);
+				mTasks.removeAt(i);
+			} else if (mExecutor.remove(task)) {
+				// Queued tasks are ordered when added, so requeue them.
+				task.distance = Math.abs(task.position - focus);
+				mExecutor.execute(task);
+			}
+		}
+		for (int i = mRendered.size() - 1; i >= 0; i--) {
+			final int position = mRendered.keyAt(i);
+			if (!isInWindow(position)) {
+				final Bitmap bitmap = mRendered.valueAt(i);
+				mRendered.removeAt(i);
+				detachBitmap(position);
+				mPool.put(bitmap);
+			}
+		}
+		for (int distance = 0; focus + distance <= mWindowLast
+				|| focus - distance >= mWindowFirst; distance++) {
+			requestRender(focus + distance);
+			if (distance > 0) {
+				requestRender(focus - distance);
+			}
+		}
+	}
+
+	private boolean isInWindow(int position) {
+		return position >= mWindowFirst && position <= mWindowLast;
+	}
+
+	private void requestRender(int position) {
+		if (mPageWidth <= 0 || mPageHeight <= 0 || !isInWindow(position)
+				|| mRendered.get(position) != null || mTasks.get(position) != null) {
+			return;
+		}
+		final RenderTask task = new RenderTask(position, mGeneration, mPageWidth, mPageHeight,
+				mSequence++);
+		task.distance = Math.abs(position - mFocus);
+		mTasks.put(position, task);
+		mExecutor.execute(task);
+	}
+
+	private FlipView getFlipView() {
+		return mFlipView != null ? mFlipView.get() : null;
+	}
+
+	private void setRendered(int position, Bitmap bitmap) {
+		mRendered.put(position, bitmap);
+		setViewBitmaps(position, bitmap);
+		// A page that isn't attached doesn't tell FlipView it changed.
+		final FlipView flipView = getFlipView();
+		if (flipView != null) {
+			flipView.invalidatePageSnapshot(position);
+		}
+	}
+
+	private void detachBitmap(int position) {
+		setViewBitmaps(position, null);
+	}
+
+	private void setViewBitmaps(int position, Bitmap bitmap) {
+		for (int i = mViews.size() - 1; i >= 0; i--) {
+			final DocumentPageView view = mViews.get(i).get();
+			if (view == null) {
+				mViews.remove(i);
+			} else if (view.getPosition() == position) {
+				view.setBitmap(bitmap);
+			}
+		}
+	}
+
+	void setPageSize(int width, int height) {
+		if (width == mPageWidth && height == mPageHeight) {
+			return;
+		}
+		mPageWidth = width;
+		mPageHeight = height;
+		discardRenders();
+		setFocusPosition(mFocus, mFocus - mWindowFirst, mWindowLast - mFocus);
+	}
+
+	private void discardRenders() {
+		mGeneration++;
+		for (int i = 0; i < mTasks.size(); i++) {
+			final RenderTask task = mTasks.valueAt(i);
+			task.cancelled = true;
+			mExecutor.remove(task);
+		}
+		mTasks.clear();
+		for (int i = 0; i < mRendered.size(); i++) {
+			detachBitmap(mRendered.keyAt(i));
+			mPool.put(mRendered.valueAt(i));
+		}
+		mRendered.clear();
+	}
+
+	@Override
+	public void notifyDataSetChanged() {
+		discardRenders();
+		super.notifyDataSetChanged();
+		setFocusPosition(mFocus, mFocus - mWindowFirst, mWindowLast - mFocus);
+	}
+
+	/**
+	 * Stops the workers, the adapter can't render after this. Before
+	 * Gingerbread idle workers never exit, so call it when done with the
+	 * adapter there.
+	 */
+	public void shutdown() {
+		discardRenders();
+		mExecutor.shutdownNow();
+	}
+}
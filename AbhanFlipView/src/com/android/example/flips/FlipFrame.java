@@ -0,0 +1,153 @@
+package com.android.example.flips;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Rect;
+import com.android.example.flips.FlipView.Page;
+
+public final class FlipFrame {
+
+	private final FlipView mFlipView;
+	private int mSourcePosition;
+	private int mDestinationPosition;
+	private Page mSource;
+	private Page mDestination;
+	private float mDegrees;
+	private int mDirection;
+	private boolean mVertical;
+	private boolean mLowDetail;
+	private int mEffectLevel;
+	private int mWidth;
+	private int mHeight;
+	private Rect mPreviousHalf;
+	private Rect mNextHalf;
+
+	FlipFrame(FlipView flipView) {
+		mFlipView = flipView;
+	}
+
+	void set(int sourcePosition, int destinationPosition, float degrees, int direction,
+			boolean vertical, boolean lowDetail, int effectLevel, int width, int height,
+			Rect previousHalf, Rect nextHalf) {
+		mSourcePosition = sourcePosition;
+		mDestinationPosition = destinationPosition;
+		mSource = null;
+		mDestination = null;
+		mDegrees = degrees;
+		mDirection = direction;
+		mVertical = vertical;
+		mLowDetail = lowDetail;
+		mEffectLevel = effectLevel;
+		mWidth = width;
+		mHeight = height;
+		mPreviousHalf = previousHalf;
+		mNextHalf = nextHalf;
+	}
+
+	void clear() {
+		mSource = null;
+		mDestination = null;
+	}
+
+	// Pages are bound on first use, a renderer skipping a half never binds it.
+	private Page source() {
+		if (mSource == null) {
+			mSource = mFlipView.pageForPosition(mSourcePosition);
+		}
+		return mSource;
+	}
+
+	private Page destination() {
+		if (mDestination == null) {
+			mDestination = mFlipView.pageForPosition(mDestinationPosition);
+		}
+		return mDestination;
+	}
+
+	/**
+	 * Degrees turned from the source page, 0 up to but excluding 180.
+	 */
+	public float getDegrees() {
+		return mDegrees;
+	}
+
+	/**
+	 * 1 while heading to later pages, -1 while heading to earlier ones.
+	 */
+	public int getDirection() {
+		return mDirection;
+	}
+
+	public boolean isVertical() {
+		return mVertical;
+	}
+
+	public int getWidth() {
+		return mWidth;
+	}
+
+	public int getHeight() {
+		return mHeight;
+	}
+
+	public Rect getPreviousHalf() {
+		return mPreviousHalf;
+	}
+
+	public Rect getNextHalf() {
+		return mNextHalf;
+	}
+
+	/**
+	 * One of the FrameBudgetGovernor levels, effects at or below it should
+	 * be left out.
+	 */
+	public int getEffectLevel() {
+		return mEffectLevel;
+	}
+
+	public boolean isLowDetail() {
+		return mLowDetail;
+	}
+
+	public int getSourcePosition() {
+		return mSourcePosition;
+	}
+
+	public int getDestinationPosition() {
+		return mDestinationPosition;
+	}
+
+	/**
+	 * Returns a snapshot of the page shown at 0 degrees, downsampled when
+	 * lowDetail is set and the frame is low detail, or null if none is ready.
+	 */
+	public Bitmap getSourceBitmap(boolean lowDetail) {
+		return mFlipView.bitmapForPage(source(), lowDetail && mLowDetail);
+	}
+
+	public Bitmap getDestinationBitmap(boolean lowDetail) {
+		return mFlipView.bitmapForPage(destination(), lowDetail && mLowDetail);
+	}
+
+	/**
+	 * Draws the page shown at 0 degrees, from its snapshot or its view.
+	 * Returns true if the lighting was applied, which only a snapshot can do.
+	 */
+	public boolean drawSource(Canvas canvas, ColorFilter lighting, boolean lowDetail) {
+		return mFlipView.drawPage(canvas, source(), lighting, lowDetail && mLowDetail);
+	}
+
+	public boolean drawDestination(Canvas canvas, ColorFilter lighting, boolean lowDetail) {
+		return mFlipView.drawPage(canvas, destination(), lighting, lowDetail && mLowDetail);
+	}
+
+	long startStage() {
+		return mFlipView.startStage();
+	}
+
+	void endStage(int stage, long start) {
+		mFlipView.endStage(stage, start);
+	}
+}
@@ -0,0 +1,125 @@
+package com.android.example.flips;
+
+public class FlipFrameStats {
+
+	public static final int STAGE_GET_VIEW = 0;
+	public static final int STAGE_MEASURE_LAYOUT = 1;
+	public static final int STAGE_DRAW_PREVIOUS = 2;
+	public static final int STAGE_DRAW_NEXT = 3;
+	public static final int STAGE_DRAW_FLIPPING = 4;
+	public static final int STAGE_LIGHTING = 5;
+	public static final int STAGE_EDGE_EFFECTS = 6;
+	public static final int STAGE_FRAME = 7;
+	public static final int STAGE_COUNT = 8;
+
+	public static final long DEFAULT_FRAME_INTERVAL_NANOS = 16666667L;
+
+	private static final int BUCKET_COUNT = 256;
+	private static final long BUCKET_NANOS = 200000L;
+
+	private final int[][] mHistograms = new int[STAGE_COUNT][BUCKET_COUNT];
+	private final int[] mSampleCounts = new int[STAGE_COUNT];
+	private final long[] mMaxNanos = new long[STAGE_COUNT];
+
+	private long mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+	private long mLastAnimationFrameNanos;
+	private int mFrameCount;
+	private int mDroppedFrameCount;
+
+	public void setFrameIntervalNanos(long frameIntervalNanos) {
+		if (frameIntervalNanos <= 0) {
+			throw new IllegalArgumentException("Frame interval must be > 0");
+		}
+		mFrameIntervalNanos = frameIntervalNanos;
+	}
+
+	public long getFrameIntervalNanos() {
+		return mFrameIntervalNanos;
+	}
+
+	void record(int stage, long durationNanos) {
+		final int bucket = (int) Math.min(BUCKET_COUNT - 1, durationNanos / BUCKET_NANOS);
+		mHistograms[stage][bucket]++;
+		mSampleCounts[stage]++;
+		if (durationNanos > mMaxNanos[stage]) {
+			mMaxNanos[stage] = durationNanos;
+		}
+	}
+
+	void onFrame(long frameStartNanos, long frameNanos, boolean animating) {
+		record(STAGE_FRAME, frameNanos);
+		mFrameCount++;
+		if (!animating) {
+			mLastAnimationFrameNanos = 0;
+			return;
+		}
+		if (mLastAnimationFrameNanos != 0) {
+			// Frames missed between two consecutive animation frames.
+			final long interval = frameStartNanos - mLastAnimationFrameNanos;
+			final long missed = (interval + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+			if (missed > 0) {
+				mDroppedFrameCount += missed;
+			}
+		}
+		mLastAnimationFrameNanos = frameStartNanos;
+	}
+
+	public long getPercentileNanos(int stage, int percentile) {
+		final int count = mSampleCounts[stage];
+		if (count == 0) {
+			return 0;
+		}
+		final int[] histogram = mHistograms[stage];
+		final long rank = ((long) count * percentile + 99) / 100;
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+			seen += histogram[i];
+			if (seen >= rank) {
+				return (i + 1) * BUCKET_NANOS;
+			}
+		}
+		return mMaxNanos[stage];
+	}
+
+	public long getP50Nanos(int stage) {
+		return getPercentileNanos(stage, 50);
+	}
+
+	public long getP95Nanos(int stage) {
+		return getPercentileNanos(stage, 95);
+	}
+
+	public long getP99Nanos(int stage) {
+		return getPercentileNanos(stage, 99);
+	}
+
+	public long getMaxNanos(int stage) {
+		return mMaxNanos[stage];
+	}
+
+	public int getSampleCount(int stage) {
+		return mSampleCounts[stage];
+	}
+
+	public int getFrameCount() {
+		return mFrameCount;
+	}
+
+	public int getDroppedFrameCount() {
+		return mDroppedFrameCount;
+	}
+
+	public void reset() {
+		for (int stage = 0; stage < STAGE_COUNT; stage++) {
+			final int[] histogram = mHistograms[stage];
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				histogram[i] = 0;
+			}
+			mSampleCounts[stage] = 0;
+			mMaxNanos[stage] = 0;
+		}
+		mLastAnimationFrameNanos = 0;
+		mFrameCount = 0;
+		mDroppedFrameCount = 0;
+	}
+}
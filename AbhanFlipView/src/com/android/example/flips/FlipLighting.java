@@ -0,0 +1,44 @@
+package com.android.example.flips;
+
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.LightingColorFilter;
+
+class FlipLighting {
+
+	// A black fill at alpha a over a pixel scales it by (255 - a) / 255 and a
+	// white fill adds a on top of that, both exactly what a LightingColorFilter
+	// does, so the fills can be folded into the bitmap draw itself.
+	private final ColorFilter[] mDarkenFilters = new ColorFilter[256];
+	private final ColorFilter[] mBrightenFilters = new ColorFilter[256];
+
+	ColorFilter darken(int alpha) {
+		if (alpha <= 0) {
+			return null;
+		}
+		alpha = Math.min(alpha, 255);
+		ColorFilter filter = mDarkenFilters[alpha];
+		if (filter == null) {
+			filter = new LightingColorFilter(gray(255 - alpha), 0);
+			mDarkenFilters[alpha] = filter;
+		}
+		return filter;
+	}
+
+	ColorFilter brighten(int alpha) {
+		if (alpha <= 0) {
+			return null;
+		}
+		alpha = Math.min(alpha, 255);
+		ColorFilter filter = mBrightenFilters[alpha];
+		if (filter == null) {
+			filter = new LightingColorFilter(gray(255 - alpha), gray(alpha));
+			mBrightenFilters[alpha] = filter;
+		}
+		return filter;
+	}
+
+	private static int gray(int value) {
+		return Color.rgb(value, value, value);
+	}
+}
@@ -0,0 +1,17 @@
+package com.android.example.flips;
+
+import android.graphics.Canvas;
+
+public interface FlipRenderer {
+
+	/**
+	 * Draws one frame of a flip. The frame is only valid during the call.
+	 */
+	public void drawFlip(Canvas canvas, FlipFrame frame);
+
+	/**
+	 * Returns true if a frame only changes the half of the view the turning
+	 * page is over, letting FlipView leave the other half alone.
+	 */
+	public boolean isHalfLocal();
+}
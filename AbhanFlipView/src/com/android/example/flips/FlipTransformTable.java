@@ -0,0 +1,81 @@
+package com.android.example.flips;
+
+import android.graphics.Camera;
+import android.graphics.Matrix;
+
+class FlipTransformTable {
+
+	private static final int STEPS_PER_DEGREE = 2;
+	// Each side of 90 degrees gets its own run of entries including the 90
+	// degree edge, so interpolation never mixes the two halves of the fold.
+	private static final int HALF_ENTRY_COUNT = 90 * STEPS_PER_DEGREE + 1;
+	private static final int ENTRY_COUNT = 2 * HALF_ENTRY_COUNT;
+	private static final int VALUE_COUNT = 9;
+
+	private final Camera mCamera = new Camera();
+	private final Matrix mMatrix = new Matrix();
+	private final float[] mValues = new float[VALUE_COUNT];
+	private final float[] mTable = new float[ENTRY_COUNT * VALUE_COUNT];
+
+	private int mWidth = -1;
+	private int mHeight = -1;
+	private boolean mIsFlippingVertically;
+
+	void setup(int width, int height, boolean flippingVertically) {
+		if (width == mWidth && height == mHeight
+				&& flippingVertically == mIsFlippingVertically) {
+			return;
+		}
+		mWidth = width;
+		mHeight = height;
+		mIsFlippingVertically = flippingVertically;
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			final boolean pastHalf = i >= HALF_ENTRY_COUNT;
+			final float degrees = pastHalf ? 90 + (float) (i - HALF_ENTRY_COUNT)
+					/ STEPS_PER_DEGREE : (float) i / STEPS_PER_DEGREE;
+			computeMatrix(degrees, pastHalf, mMatrix);
+			mMatrix.getValues(mValues);
+			System.arraycopy(mValues, 0, mTable, i * VALUE_COUNT, VALUE_COUNT);
+		}
+	}
+
+	void getMatrix(float degreesFlipped, Matrix out) {
+		final float degrees = Math.max(0, Math.min(180, degreesFlipped));
+		final boolean pastHalf = degrees > 90;
+		final float step = (pastHalf ? degrees - 90 : degrees) * STEPS_PER_DEGREE;
+		final int halfIndex = Math.min((int) step, HALF_ENTRY_COUNT - 2);
+		final float fraction = step - halfIndex;
+		final int index = pastHalf ? HALF_ENTRY_COUNT + halfIndex : halfIndex;
+		final int from = index * VALUE_COUNT;
+		final int to = from + VALUE_COUNT;
+		for (int i = 0; i < VALUE_COUNT; i++) {
+			mValues[i] = mTable[from + i] + (mTable[to + i] - mTable[from + i]) * fraction;
+		}
+		out.setValues(mValues);
+	}
+
+	private void computeMatrix(float degreesFlipped, boolean pastHalf, Matrix out) {
+		mCamera.save();
+		if (pastHalf) {
+			if (mIsFlippingVertically) {
+				mCamera.rotateX(degreesFlipped - 180);
+			} else {
+				mCamera.rotateY(180 - degreesFlipped);
+			}
+		} else {
+			if (mIsFlippingVertically) {
+				mCamera.rotateX(degreesFlipped);
+			} else {
+				mCamera.rotateY(-degreesFlipped);
+			}
+		}
+		mCamera.getMatrix(out);
+		mCamera.restore();
+
+		// Scaling around the camera pushes it back to soften the perspective.
+		out.preScale(0.25f, 0.25f);
+		out.postScale(4.0f, 4.0f);
+		out.preTranslate(-mWidth / 2, -mHeight / 2);
+		out.postTranslate(mWidth / 2, mHeight / 2);
+	}
+}
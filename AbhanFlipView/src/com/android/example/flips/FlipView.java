@@ -1,7 +1,5 @@
 package com.android.example.flips;
 
-import java.util.LinkedList;
-import java.util.Queue;
 import com.android.example.R;
 import com.nineoldandroids.animation.Animator;
 import com.nineoldandroids.animation.AnimatorListenerAdapter;
@@ -10,12 +8,12 @@ import com.nineoldandroids.animation.ValueAnimator.AnimatorUpdateListener;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.database.DataSetObserver;
-import android.graphics.Camera;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Matrix;
+import android.graphics.ColorFilter;
 import android.graphics.Paint;
-import android.graphics.Paint.Style;
+import android.graphics.Picture;
 import android.graphics.Rect;
 import android.support.v4.view.MotionEventCompat;
 import android.support.v4.view.VelocityTrackerCompat;
@@ -25,6 +23,8 @@ import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
 import android.widget.FrameLayout;
@@ -37,23 +37,168 @@ public class FlipView extends FrameLayout {
 		public void onFlippedToPage(FlipView view, int position, long id);
 	}
 
+	public interface PageRenderer {
+		/**
+		 * Called on a worker thread. Returns false if the page can't be drawn
+		 * without its bound view.
+		 */
+		public boolean renderPage(int position, Canvas canvas, int width, int height);
+	}
+
+	public interface FocusAwareAdapter {
+		/**
+		 * Called as the window of bound pages moves, so the adapter can put
+		 * its work into the pages around focus.
+		 */
+		public void setFocusPosition(int focus, int pagesBefore, int pagesAfter);
+	}
+
+	private class PageSettler implements Runnable {
+		View removedView;
+		View addedView;
+		int page;
+		boolean pending;
+
+		void settle(View removed, View added, int page) {
+			// A settle still waiting keeps the view it will remove, which is
+			// the one actually attached, and just retargets the rest.
+			if (!pending) {
+				pending = true;
+				removedView = removed;
+				post(this);
+			}
+			addedView = added;
+			this.page = page;
+		}
+
+		void cancel() {
+			if (pending) {
+				removeCallbacks(this);
+				pending = false;
+			}
+			removedView = null;
+			addedView = null;
+		}
+
+		@Override
+		public void run() {
+			pending = false;
+			if (removedView != null) {
+				removeView(removedView);
+			}
+			if (addedView != null && addedView.getParent() == null) {
+				addView(addedView);
+			}
+			removedView = null;
+			addedView = null;
+			if (mOnFlipListener != null && mAdapter != null) {
+				mOnFlipListener.onFlippedToPage(FlipView.this, page,
+						mAdapter.getItemId(page));
+			}
+		}
+	}
+
 	static class Page {
-		int position;
-		View view;
+		private static int sNextGeneration;
 
-		public Page(int position, View view) {
+		int position = -1;
+		int viewType;
+		long id;
+		View view;
+		Bitmap snapshot;
+		boolean snapshotValid;
+		boolean snapshotDirty;
+		Bitmap lowDetailSnapshot;
+		boolean lowDetailSnapshotValid;
+		int generation;
+		int contentGeneration;
+		boolean renderPending;
+		boolean rendererDeclined;
+		boolean storeChecked;
+
+		void bind(int position, View view, int viewType, long id) {
 			this.position = position;
 			this.view = view;
+			this.viewType = viewType;
+			this.id = id;
+			this.rendererDeclined = false;
+			this.storeChecked = false;
+			invalidateContent();
+		}
+
+		/**
+		 * Drops the snapshot and the tiles. Tiles are in page coordinates, so
+		 * unlike snapshots they outlive moving the page around.
+		 */
+		void invalidateContent() {
+			contentGeneration = ++sNextGeneration;
+			invalidateSnapshot();
+		}
+
+		void invalidateSnapshot() {
+			snapshotValid = false;
+			snapshotDirty = false;
+			lowDetailSnapshotValid = false;
+			renderPending = false;
+			// Unique across pages, so nothing keyed by position and generation
+			// can mistake another binding of the position for this one.
+			generation = ++sNextGeneration;
+		}
+
+		/**
+		 * Asks for the tiles and snapshot to be rendered again, letting the
+		 * old snapshot stand in until then.
+		 */
+		void markDirty() {
+			contentGeneration = ++sNextGeneration;
+			if (snapshotValid) {
+				snapshotDirty = true;
+				lowDetailSnapshotValid = false;
+				renderPending = false;
+				generation = ++sNextGeneration;
+			}
+		}
+
+		void unbind() {
+			position = -1;
+			view = null;
 		}
 	}
 
 	private static final int PEAK_ANIM_DURATION = 1000;
+	private static final int PEAK_IDLE_DELAY = 2000;
 	private static final int MAX_SINGLE_PAGE_FLIP_ANIM_DURATION = 650;
 	private static final int FLIP_DISTANCE_PER_PAGE = 180;
-	private static final int MAX_SHADOW_ALPHA = 180;
-	private static final int MAX_SHADE_ALPHA = 130;
-	private static final int MAX_SHINE_ALPHA = 100;
+	private static final int MAX_SCROLL_UNITS_PER_DEGREE = 100;
 	private static final int INVALID_POINTER = -1;
+	private static final int FLIP_SIDE_NONE = 0;
+	private static final int FLIP_SIDE_PREVIOUS = 1;
+	private static final int FLIP_SIDE_NEXT = 2;
+	private static final int DEFAULT_OFFSCREEN_PAGES = 1;
+	private static final int DEFAULT_BITMAP_POOL_FRACTION = 8;
+	private static final float DEFAULT_LOW_DETAIL_VELOCITY = 540;
+	private static final int DEFAULT_OVERVIEW_COLUMNS = 3;
+	private static final int DEFAULT_TILE_SIZE = 256;
+	private static final int DEFAULT_TILE_CACHE_FRACTION = 8;
+	private static final int DEFAULT_THUMBNAIL_CACHE_FRACTION = 16;
+	private static final int OVERVIEW_PADDING_DIP = 6;
+	private static final int OVERVIEW_BACKGROUND = 0xff202020;
+	private static final int THUMBNAIL_PLACEHOLDER = 0xff606060;
+	private static final long MAX_VELOCITY_FRAME_GAP_NANOS = 100000000L;
+
+	public static final int PEAK_FOREVER = -1;
+
+	// Same values as ComponentCallbacks2, so onTrimMemory levels can be
+	// passed straight through.
+	public static final int TRIM_MEMORY_RUNNING_MODERATE = 5;
+	public static final int TRIM_MEMORY_RUNNING_LOW = 10;
+	public static final int TRIM_MEMORY_RUNNING_CRITICAL = 15;
+	public static final int TRIM_MEMORY_UI_HIDDEN = 20;
+	public static final int TRIM_MEMORY_BACKGROUND = 40;
+	public static final int TRIM_MEMORY_MODERATE = 60;
+	public static final int TRIM_MEMORY_COMPLETE = 80;
+	private static final long FRAME_INTERVAL_NANOS = 16666667L;
+	private static final long FRAME_SAFETY_MARGIN_NANOS = 2000000L;
 
 	private DataSetObserver dataSetObserver = new DataSetObserver() {
 
@@ -90,13 +235,55 @@ public class FlipView extends FrameLayout {
 	private int mMaximumVelocity;
 
 	private Recycler mRecycler = new Recycler();
-	private Queue<Page> mActivePageQueue = new LinkedList<FlipView.Page>();
+	private BitmapPool mBitmapPool = new BitmapPool(Runtime.getRuntime().maxMemory()
+			/ DEFAULT_BITMAP_POOL_FRACTION);
+	private PageWindow mActivePages = new PageWindow(2 * DEFAULT_OFFSCREEN_PAGES + 1);
+	private int mOffscreenPagesBefore = DEFAULT_OFFSCREEN_PAGES;
+	private int mOffscreenPagesAfter = DEFAULT_OFFSCREEN_PAGES;
+	private boolean mAdaptiveOffscreenPages;
+	private int mWindowPagesBefore = DEFAULT_OFFSCREEN_PAGES;
+	private int mWindowPagesAfter = DEFAULT_OFFSCREEN_PAGES;
+	private int mWindowCenter = -1;
+	private int mFlipDirection = 1;
+
+	private PagePrefetcher mPrefetcher = new PagePrefetcher(this);
+	private int mPrefetchPageCount;
+	private long mLastFrameNanos;
+	private float mFlipVelocity;
+	private int mLowDetailScale = 1;
+	private float mLowDetailVelocity = DEFAULT_LOW_DETAIL_VELOCITY;
+	private boolean mLowDetail;
+	private int mDrawnLowDetailScale = 1;
+	private FrameBudgetGovernor mGovernor;
+
+	private int mMaxFlingPages = 1;
+	private int mSkipAheadSteps;
+	private boolean mIsSkipping;
+	private int mSkipLowPage;
+	private int mSkipHighPage;
+	private int mSkipStepCount;
+	private FlipFrameStats mFrameStats;
 
 	private ListAdapter mAdapter;
 	private int mPageCount = 0;
 	private OnFlipListener mOnFlipListener;
+	private PageSettler mPageSettler = new PageSettler();
+
+	private double mFlipDistance = 0;
+	private double mScrollStartDistance;
+	private double mScrollTargetDistance;
+	private double mScrollUnitsPerDegree = 1;
+	private double mPeakBaseDistance;
+	private boolean mPeakNext;
+	private int mPeakCyclesLeft;
+	private boolean mPeakPending;
+	private final Runnable mPeakRestart = new Runnable() {
 
-	private float mFlipDistance = 0;
+		@Override
+		public void run() {
+			resumePeak();
+		}
+	};
 	private int mCurrentPage = 0;
 
 	private Rect mTopRect = new Rect();
@@ -104,16 +291,52 @@ public class FlipView extends FrameLayout {
 	private Rect mRightRect = new Rect();
 	private Rect mLeftRect = new Rect();
 
-	private Camera mCamera = new Camera();
-	private Matrix mMatrix = new Matrix();
+	private int mDrawnFlipSide = FLIP_SIDE_NONE;
+	private int mDrawnFlipPage = -1;
+	private double mDrawnFlipDistance;
 
-	private Paint mShadowPaint = new Paint();
-	private Paint mShadePaint = new Paint();
-	private Paint mShinePaint = new Paint();
+	private FlipRenderer mFlipRenderer = new FoldFlipRenderer();
+	private FlipFrame mFlipFrame = new FlipFrame(this);
 
 	private EdgeEffectCompat mPreviousEdgeEffect;
 	private EdgeEffectCompat mNextEdgeEffect;
 
+	private boolean mPageSnapshotsEnabled;
+	private boolean mAsyncSnapshotsEnabled;
+	private SnapshotRenderer mSnapshotRenderer = new SnapshotRenderer(this);
+	private Canvas mSnapshotCanvas = new Canvas();
+	private DiskSnapshotStore mSnapshotStore;
+	private Bitmap mPlaceholder;
+	private int mPlaceholderGeneration;
+	private boolean mBindDeferred;
+
+	private boolean mTiledPagesEnabled;
+	private TileCache mTileCache;
+	private Rect mTileBounds = new Rect();
+	private boolean mPanningContent;
+
+	private boolean mOverviewMode;
+	private int mOverviewColumns = DEFAULT_OVERVIEW_COLUMNS;
+	private ThumbnailCache mThumbnails;
+	private Scroller mOverviewScroller;
+	private float mOverviewScroll;
+	private float mOverviewDownY;
+	private boolean mIsScrubbing;
+	private int mOverviewPadding;
+	private Rect mThumbnailRect = new Rect();
+	private Paint mThumbnailPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+	private Paint mThumbnailPlaceholderPaint = new Paint();
+	private Paint mOverviewHighlightPaint = new Paint();
+
+	private final Runnable mDeferredBind = new Runnable() {
+
+		@Override
+		public void run() {
+			bindDeferredPage();
+		}
+	};
+	private Paint mSnapshotPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
 	public FlipView(Context context) {
 		this(context, null);
 	}
@@ -139,23 +362,110 @@ public class FlipView extends FrameLayout {
 		mMinimumVelocity = configuration.getScaledMinimumFlingVelocity();
 		mMaximumVelocity = configuration.getScaledMaximumFlingVelocity();
 
-		mShadowPaint.setColor(Color.BLACK);
-		mShadowPaint.setStyle(Style.FILL);
-		mShadePaint.setColor(Color.BLACK);
-		mShadePaint.setStyle(Style.FILL);
-		mShinePaint.setColor(Color.WHITE);
-		mShinePaint.setStyle(Style.FILL);
+		mOverviewScroller = new Scroller(context);
+		mOverviewPadding = (int) (OVERVIEW_PADDING_DIP
+				* context.getResources().getDisplayMetrics().density);
+		mThumbnailPlaceholderPaint.setColor(THUMBNAIL_PLACEHOLDER);
+		mOverviewHighlightPaint.setColor(Color.WHITE);
+		mOverviewHighlightPaint.setStyle(Paint.Style.STROKE);
+		mOverviewHighlightPaint.setStrokeWidth(mOverviewPadding / 2f);
 
 		mPreviousEdgeEffect = new EdgeEffectCompat(context);
 		mNextEdgeEffect = new EdgeEffectCompat(context);
+
+		mRecycler.attach();
 	}
 
 	private void dataSetChanged() {
+		// The views of an unsettled flip are sorted out below, and it is
+		// reported against the new data once the current page is clamped.
+		final boolean wasSettling = mPageSettler.pending;
+		mPageSettler.cancel();
+		if (mBindDeferred) {
+			cancelDeferredBind();
+		}
 		mPageCount = mAdapter.getCount();
-		removeAllViews();
-		mActivePageQueue.clear();
 		mRecycler.setViewTypeCount(mAdapter.getViewTypeCount());
-		addView(viewForPage(mCurrentPage));
+		if (mThumbnails != null) {
+			mThumbnails.clear();
+		}
+		if (mPageCount < 1) {
+			endScroll();
+			endPeak();
+			mPrefetcher.cancel();
+			removeAllViews();
+			clearActivePages();
+			if (mTileCache != null) {
+				mTileCache.clear();
+			}
+			mLowDetail = false;
+			mCurrentPage = 0;
+			mFlipDistance = 0;
+			// dispatchDraw draws nothing now, the old page must not linger.
+			invalidate();
+			return;
+		}
+
+		// Only pages whose item moved or changed are rebound; with stable ids
+		// an unchanged page keeps its view and snapshot, and the flip state is
+		// left alone so a flip in progress carries on.
+		final boolean hasStableIds = mAdapter.hasStableIds();
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			final Page page = mActivePages.pageAt(i);
+			if (page.view == null) {
+				continue;
+			}
+			if (page.position >= mPageCount) {
+				if (page.view.getParent() == this) {
+					removeView(page.view);
+				}
+				recyclePage(page);
+			} else if (!hasStableIds || page.id != mAdapter.getItemId(page.position)
+					|| page.viewType != mAdapter.getItemViewType(page.position)) {
+				rebindPage(page);
+			}
+		}
+
+		if (mCurrentPage > mPageCount - 1) {
+			mCurrentPage = mPageCount - 1;
+		}
+		bindFlipDistance();
+		final View current = viewForPage(mCurrentPage);
+		if (getChildCount() == 0 || getChildAt(0) != current) {
+			removeAllViews();
+			addView(current);
+		}
+		if (wasSettling && mOnFlipListener != null) {
+			mOnFlipListener.onFlippedToPage(this, mCurrentPage,
+					mAdapter.getItemId(mCurrentPage));
+		}
+		invalidate();
+		schedulePrefetch();
+	}
+
+	private void rebindPage(Page page) {
+		final int position = page.position;
+		final int viewType = mAdapter.getItemViewType(position);
+		final View oldView = page.view;
+		final boolean attached = oldView.getParent() == this;
+		View convertView = oldView;
+		if (viewType != page.viewType) {
+			if (!attached) {
+				mRecycler.addScrapView(oldView, position, page.viewType);
+			}
+			convertView = mRecycler.getScrapView(position, viewType);
+		}
+		final View view = getAdapterView(position, convertView);
+		if (view != convertView) {
+			mRecycler.onViewInflated();
+		}
+		if (attached && view != oldView) {
+			removeView(oldView);
+			addView(view);
+		}
+		page.bind(position, view, viewType, mAdapter.getItemId(position));
+		resetContentOffset(view);
+		measureAndLayoutChild(view);
 	}
 
 	private void dataSetInvalidated() {
@@ -163,8 +473,13 @@ public class FlipView extends FrameLayout {
 			mAdapter.unregisterDataSetObserver(dataSetObserver);
 			mAdapter = null;
 		}
-		mRecycler = new Recycler();
+		if (!mRecycler.isShared()) {
+			mRecycler.clear();
+		}
+		mPageSettler.cancel();
 		removeAllViews();
+		clearActivePages();
+		setOverviewMode(false);
 	}
 
 	@Override
@@ -194,7 +509,106 @@ public class FlipView extends FrameLayout {
 	@Override
 	protected void measureChild(View child, int parentWidthMeasureSpec,
 			int parentHeightMeasureSpec) {
-		child.measure(parentWidthMeasureSpec, parentHeightMeasureSpec);
+		final ViewGroup.LayoutParams params = child.getLayoutParams();
+		if (mTiledPagesEnabled && params != null) {
+			// Tiled pages may outgrow the view wherever they don't match it.
+			child.measure(getTiledMeasureSpec(parentWidthMeasureSpec, params.width),
+					getTiledMeasureSpec(parentHeightMeasureSpec, params.height));
+		} else {
+			child.measure(parentWidthMeasureSpec, parentHeightMeasureSpec);
+		}
+	}
+
+	private static int getTiledMeasureSpec(int parentMeasureSpec, int dimension) {
+		if (dimension >= 0) {
+			return MeasureSpec.makeMeasureSpec(dimension, MeasureSpec.EXACTLY);
+		} else if (dimension == LayoutParams.MATCH_PARENT) {
+			return parentMeasureSpec;
+		}
+		return MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		// A placeholder read dropped on detach is read again.
+		if (mBindDeferred && mPlaceholder == null && getWidth() > 0 && getHeight() > 0) {
+			showPlaceholder();
+		}
+		schedulePrefetch();
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		pausePeak();
+		mPrefetcher.cancel();
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			final Page page = mActivePages.pageAt(i);
+			if (page.view != null) {
+				storeSnapshot(page);
+			}
+		}
+		stopSnapshotRenderer();
+		if (mThumbnails != null) {
+			mThumbnails.shutdown();
+		}
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		invalidatePageSnapshots();
+		if (mTileCache != null) {
+			mTileCache.clear();
+		}
+		if (mBindDeferred) {
+			showPlaceholder();
+		}
+	}
+
+	@Override
+	public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+		invalidateAttachedSnapshot();
+		return super.invalidateChildInParent(location, dirty);
+	}
+
+	@Override
+	public void onDescendantInvalidated(View child, View target) {
+		// From API 26 hardware accelerated invalidations come here instead.
+		invalidateAttachedSnapshot();
+		super.onDescendantInvalidated(child, target);
+	}
+
+	/**
+	 * Drops the snapshot of the attached page as soon as it invalidates. Not
+	 * every change comes through here, so flips also redo their snapshots
+	 * as they start.
+	 */
+	private void invalidateAttachedSnapshot() {
+		// Only the current page is attached, so any child invalidation is its.
+		// Panning it only moves what it already shows.
+		if (getChildCount() > 0 && !mPanningContent) {
+			final Page page = mActivePages.get(getChildAt(0));
+			if (page != null) {
+				page.invalidateContent();
+			}
+		}
+	}
+
+	/**
+	 * Called as a flip, scroll or peek starts. Pages can change without
+	 * invalidating through FlipView, detached ones always do, so each bound
+	 * page is rendered again once, its old snapshot standing in meanwhile.
+	 */
+	private void markPagesDirty() {
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			final Page page = mActivePages.pageAt(i);
+			if (page.view != null) {
+				page.markDirty();
+			}
+		}
+		schedulePrefetch();
 	}
 
 	@Override
@@ -231,12 +645,39 @@ public class FlipView extends FrameLayout {
 	}
 
 	private void layoutChild(View child) {
-		child.layout(0, 0, getWidth(), getHeight());
+		if (mTiledPagesEnabled) {
+			// A tiled page keeps its offset as far as its new size allows.
+			final int width = child.getMeasuredWidth();
+			final int height = child.getMeasuredHeight();
+			final int left = clampContentOffset(child.getLeft(), width, getWidth());
+			final int top = clampContentOffset(child.getTop(), height, getHeight());
+			child.layout(left, top, left + width, top + height);
+		} else {
+			child.layout(0, 0, getWidth(), getHeight());
+		}
+	}
+
+	/**
+	 * A tiled page keeps its offset across layouts, so a view showing another
+	 * page starts from the top left again.
+	 */
+	private static void resetContentOffset(View view) {
+		if (view.getLeft() != 0 || view.getTop() != 0) {
+			view.layout(0, 0, view.getWidth(), view.getHeight());
+		}
+	}
+
+	private static int clampContentOffset(int offset, int contentSize, int viewSize) {
+		return Math.max(Math.min(0, viewSize - contentSize), Math.min(0, offset));
 	}
 
 	@Override
 	public boolean onInterceptTouchEvent(MotionEvent motionEvent) {
 
+		if (mOverviewMode) {
+			return true;
+		}
+
 		if (!mIsFlippingEnabled) {
 			return false;
 		}
@@ -287,6 +728,7 @@ public class FlipView extends FrameLayout {
 			if ((mIsFlippingVertically && yDiff > mTouchSlop && yDiff > xDiff)
 					|| (!mIsFlippingVertically && xDiff > mTouchSlop && xDiff > yDiff)) {
 				mIsFlipping = true;
+				markPagesDirty();
 				mLastX = x;
 				mLastY = y;
 			} else if ((mIsFlippingVertically && xDiff > mTouchSlop)
@@ -321,6 +763,10 @@ public class FlipView extends FrameLayout {
 	@Override
 	public boolean onTouchEvent(MotionEvent motionEvent) {
 
+		if (mOverviewMode) {
+			return onOverviewTouchEvent(motionEvent);
+		}
+
 		if (!mIsFlippingEnabled || !mIsFlipping && !mLastTouchAllowed) {
 			return false;
 		}
@@ -363,6 +809,7 @@ public class FlipView extends FrameLayout {
 				if ((mIsFlippingVertically && yDiff > mTouchSlop && yDiff > xDiff)
 						|| (!mIsFlippingVertically && xDiff > mTouchSlop && xDiff > yDiff)) {
 					mIsFlipping = true;
+					markPagesDirty();
 					mLastX = x;
 					mLastY = y;
 				}
@@ -402,7 +849,7 @@ public class FlipView extends FrameLayout {
 							/ (isFlippingVertically() ? getHeight()
 									: getWidth()));
 				}
-				invalidate();
+				invalidateFlip(0);
 			}
 			break;
 		case MotionEvent.ACTION_UP:
@@ -419,6 +866,8 @@ public class FlipView extends FrameLayout {
 					velocity = (int) VelocityTrackerCompat.getXVelocity(
 							velocityTracker, mActivePointerId);
 				}
+				onFlipMotion(-Integer.signum(velocity), Math.abs(velocity)
+						/ (float) (isFlippingVertically() ? getHeight() : getWidth()));
 				smoothFlipTo(getNextPage(velocity));
 
 				mActivePointerId = INVALID_POINTER;
@@ -460,36 +909,143 @@ public class FlipView extends FrameLayout {
 			return;
 		}
 
+		if (mOverviewMode) {
+			drawOverview(canvas);
+			return;
+		}
+
 		boolean needsInvalidate = false;
+		boolean needsFlipInvalidate = false;
+		if (mTiledPagesEnabled) {
+			mTileCache.beginFrame();
+		}
+		final long previousFrameNanos = mLastFrameNanos;
+		mLastFrameNanos = System.nanoTime();
 
 		if (!mScroller.isFinished() && mScroller.computeScrollOffset()) {
-			mFlipDistance = mScroller.getCurrY();
-			needsInvalidate = true;
+			mFlipDistance = mScroller.isFinished() ? mScrollTargetDistance
+					: mScrollStartDistance + mScroller.getCurrY() / mScrollUnitsPerDegree;
+			needsFlipInvalidate = true;
+		}
+		if (mIsSkipping && mScroller.isFinished()) {
+			endSkip();
+		}
+
+		if (!mIsSkipping) {
+			updateActiveWindow(getCurrentPageFloor());
 		}
+		final float flipStep = (float) Math.abs(mFlipDistance - mDrawnFlipDistance);
+		mDrawnFlipDistance = mFlipDistance;
+		final long frameGap = mLastFrameNanos - previousFrameNanos;
+		mFlipVelocity = frameGap > 0 && frameGap < MAX_VELOCITY_FRAME_GAP_NANOS ? flipStep
+				* 1000000000f / frameGap : 0;
 
 		if (mIsFlipping || !mScroller.isFinished() || mPeakAnim != null) {
-			drawPreviousHalf(canvas);
-			drawNextHalf(canvas);
-			drawFlippingHalf(canvas);
+			// Leave low detail at half the speed it was entered at, so a flip
+			// hovering around the threshold doesn't keep swapping.
+			final boolean wasLowDetail = mLowDetail;
+			if (getEffectLevel() >= FrameBudgetGovernor.LEVEL_LOW_DETAIL) {
+				mDrawnLowDetailScale = Math.max(mLowDetailScale, 2);
+				mLowDetail = true;
+			} else {
+				mDrawnLowDetailScale = mLowDetailScale;
+				mLowDetail = mLowDetailScale > 1
+						&& mFlipVelocity > (mLowDetail ? mLowDetailVelocity / 2
+								: mLowDetailVelocity);
+			}
+			if (wasLowDetail && !mLowDetail) {
+				releaseLowDetailSnapshots();
+			}
+			mDrawnFlipSide = getFlipSide();
+			mDrawnFlipPage = getCurrentPageFloor();
+			mFlipFrame.set(resolvePage(getCurrentPageFloor()),
+					resolvePage(getCurrentPageCeil()), getDegreesFlipped(), mFlipDirection,
+					mIsFlippingVertically, mLowDetail, getEffectLevel(), getWidth(),
+					getHeight(), isFlippingVertically() ? mTopRect : mLeftRect,
+					isFlippingVertically() ? mBottomRect : mRightRect);
+			mFlipRenderer.drawFlip(canvas, mFlipFrame);
+			mFlipFrame.clear();
+		} else if (mBindDeferred) {
+			// Nothing is bound until the stored snapshot has been read.
+			if (mPlaceholder != null) {
+				canvas.drawBitmap(mPlaceholder, 0, 0, mSnapshotPaint);
+			}
 		} else {
+			if (mLowDetail) {
+				mLowDetail = false;
+				releaseLowDetailSnapshots();
+			}
+			mDrawnFlipSide = FLIP_SIDE_NONE;
+			mDrawnFlipPage = -1;
 			endScroll();
 			final int currentPage = getCurrentPageFloor();
+			final Page page = pageForPosition(currentPage);
 			if (mCurrentPage != currentPage) {
-				postRemoveView(getChildAt(0));
-			}
-			final View view = viewForPage(currentPage);
-			if (mCurrentPage != currentPage) {
-				postAddView(view);
-				postFlippedToPage(currentPage);
+				mPageSettler.settle(getChildAt(0), page.view, currentPage);
 				mCurrentPage = currentPage;
 			}
-			view.draw(canvas);
+			if (mTiledPagesEnabled) {
+				drawTiledPage(canvas, page, null);
+			} else {
+				page.view.draw(canvas);
+			}
 		}
 
-		needsInvalidate |= drawEdgeEffects(canvas);
+		if (!mPreviousEdgeEffect.isFinished() || !mNextEdgeEffect.isFinished()) {
+			final long start = startStage();
+			needsInvalidate |= drawEdgeEffects(canvas);
+			endStage(FlipFrameStats.STAGE_EDGE_EFFECTS, start);
+		}
 
 		if (needsInvalidate) {
 			invalidate();
+		} else if (needsFlipInvalidate) {
+			invalidateFlip(flipStep);
+		}
+
+		final long frameNanos = System.nanoTime() - mLastFrameNanos;
+		if (mFrameStats != null) {
+			mFrameStats.onFrame(mLastFrameNanos, frameNanos, mDrawnFlipSide != FLIP_SIDE_NONE);
+		}
+		if (mGovernor != null && mDrawnFlipSide != FLIP_SIDE_NONE
+				&& mGovernor.onFrame(frameNanos)) {
+			// The shadows of the static halves may have changed too.
+			invalidate();
+		}
+	}
+
+	private int getEffectLevel() {
+		return mGovernor != null ? mGovernor.getLevel() : FrameBudgetGovernor.LEVEL_FULL;
+	}
+
+	private int getFlipSide() {
+		final float degreesFlipped = getDegreesFlipped();
+		if (degreesFlipped == 0) {
+			return FLIP_SIDE_NONE;
+		}
+		return degreesFlipped > 90 ? FLIP_SIDE_PREVIOUS : FLIP_SIDE_NEXT;
+	}
+
+	/**
+	 * Invalidates only the half that changes while a flip stays on one side
+	 * of the fold: the other half shows its page unshadowed and does not
+	 * move. Anything that changes the layout of the halves, or might before
+	 * the next frame when the flip advances by expectedStep, redraws all.
+	 */
+	private void invalidateFlip(float expectedStep) {
+		final int side = getFlipSide();
+		final float degreesFlipped = getDegreesFlipped();
+		final float distanceToEdge = Math.min(Math.abs(degreesFlipped - 90),
+				Math.min(degreesFlipped, 180 - degreesFlipped));
+		if (!mFlipRenderer.isHalfLocal() || side == FLIP_SIDE_NONE || side != mDrawnFlipSide
+				|| getCurrentPageFloor() != mDrawnFlipPage
+				|| distanceToEdge <= 2 * expectedStep
+				|| !mPreviousEdgeEffect.isFinished() || !mNextEdgeEffect.isFinished()) {
+			invalidate();
+		} else if (side == FLIP_SIDE_PREVIOUS) {
+			invalidate(isFlippingVertically() ? mTopRect : mLeftRect);
+		} else {
+			invalidate(isFlippingVertically() ? mBottomRect : mRightRect);
 		}
 	}
 
@@ -534,192 +1090,585 @@ public class FlipView extends FrameLayout {
 		return needsMoreDrawing;
 	}
 
-	private void drawPreviousHalf(Canvas canvas) {
-		final View view = viewForPage(getCurrentPageFloor());
-		canvas.save();
-		canvas.clipRect(isFlippingVertically() ? mTopRect : mLeftRect);
-		view.draw(canvas);
-		drawPreviousShadow(canvas);
-		canvas.restore();
+	private float getDegreesFlipped() {
+		final double localFlipDistance = mFlipDistance % FLIP_DISTANCE_PER_PAGE;
+		return (float) (localFlipDistance / FLIP_DISTANCE_PER_PAGE) * 180;
 	}
 
-	private void drawPreviousShadow(Canvas canvas) {
-		final float degreesFlipped = getDegreesFlipped();
-		if (degreesFlipped > 90) {
-			final int alpha = (int) (((degreesFlipped - 90) / 90f) * MAX_SHADOW_ALPHA);
-			mShadowPaint.setAlpha(alpha);
-			canvas.drawPaint(mShadowPaint);
+	boolean drawPage(Canvas canvas, Page page, ColorFilter lighting, boolean lowDetail) {
+		if (lowDetail && drawLowDetailPage(canvas, page, lighting)) {
+			return true;
+		}
+		if (mTiledPagesEnabled) {
+			return drawTiledPage(canvas, page, lighting);
+		}
+		Bitmap snapshot = null;
+		if (mAsyncSnapshotsEnabled) {
+			// A page whose snapshot isn't back from the worker yet draws live.
+			snapshot = page.snapshotValid ? page.snapshot : null;
+		} else if (mPageSnapshotsEnabled || mPeakAnim != null) {
+			// Peek frames come from snapshots even when flips draw live.
+			snapshot = snapshotForPage(page);
+		}
+		if (snapshot != null) {
+			mSnapshotPaint.setColorFilter(lighting);
+			canvas.drawBitmap(snapshot, 0, 0, mSnapshotPaint);
+			mSnapshotPaint.setColorFilter(null);
+			return true;
+		}
+		page.view.draw(canvas);
+		return false;
+	}
+
+	/**
+	 * Draws the cells of the page that lie under the clip, which is the
+	 * visible half mapped back into page space, from cached tiles. Returns
+	 * false if it had to fall back to drawing the whole view.
+	 */
+	private boolean drawTiledPage(Canvas canvas, Page page, ColorFilter lighting) {
+		final View view = page.view;
+		final int left = view.getLeft();
+		final int top = view.getTop();
+		canvas.getClipBounds(mTileBounds);
+		mTileBounds.offset(-left, -top);
+		if (!mTileBounds.intersect(0, 0, view.getWidth(), view.getHeight())) {
+			return true;
+		}
+		final int tileSize = mTileCache.getTileSize();
+		final int firstColumn = mTileBounds.left / tileSize;
+		final int lastColumn = (mTileBounds.right - 1) / tileSize;
+		final int firstRow = mTileBounds.top / tileSize;
+		final int lastRow = (mTileBounds.bottom - 1) / tileSize;
+		mSnapshotPaint.setColorFilter(lighting);
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				final TileCache.Tile tile = mTileCache.obtain(page.position, column, row);
+				if (tile == null) {
+					mSnapshotPaint.setColorFilter(null);
+					drawPageView(canvas, page);
+					return false;
+				}
+				if (tile.generation != page.contentGeneration) {
+					tile.bitmap.eraseColor(Color.TRANSPARENT);
+					mSnapshotCanvas.setBitmap(tile.bitmap);
+					mSnapshotCanvas.save();
+					mSnapshotCanvas.translate(-column * tileSize, -row * tileSize);
+					view.draw(mSnapshotCanvas);
+					mSnapshotCanvas.restore();
+					tile.generation = page.contentGeneration;
+				}
+				canvas.drawBitmap(tile.bitmap, left + column * tileSize, top + row * tileSize,
+						mSnapshotPaint);
+			}
 		}
+		mSnapshotPaint.setColorFilter(null);
+		return true;
 	}
 
-	private void drawNextHalf(Canvas canvas) {
-		final View view = viewForPage(getCurrentPageCeil());
+	private void drawPageView(Canvas canvas, Page page) {
+		final View view = page.view;
+		if (view.getLeft() == 0 && view.getTop() == 0) {
+			view.draw(canvas);
+			return;
+		}
 		canvas.save();
-		canvas.clipRect(isFlippingVertically() ? mBottomRect : mRightRect);
+		canvas.translate(view.getLeft(), view.getTop());
 		view.draw(canvas);
-		drawNextShadow(canvas);
 		canvas.restore();
 	}
 
-	private void drawNextShadow(Canvas canvas) {
-		final float degreesFlipped = getDegreesFlipped();
-		if (degreesFlipped < 90) {
-			final int alpha = (int) ((Math.abs(degreesFlipped - 90) / 90f) * MAX_SHADOW_ALPHA);
-			mShadowPaint.setAlpha(alpha);
-			canvas.drawPaint(mShadowPaint);
+	/**
+	 * Returns a bitmap of the page for renderers that can only draw bitmaps,
+	 * rendering it now unless snapshots are made in the background.
+	 */
+	Bitmap bitmapForPage(Page page, boolean lowDetail) {
+		if (lowDetail) {
+			final Bitmap snapshot = lowDetailSnapshotForPage(page);
+			if (snapshot != null) {
+				return snapshot;
+			}
 		}
+		if (mAsyncSnapshotsEnabled) {
+			return page.snapshotValid ? page.snapshot : null;
+		}
+		return snapshotForPage(page);
 	}
 
-	private void drawFlippingHalf(Canvas canvas) {
-		final View view = viewForPage(getCurrentPageRound());
-		final float degreesFlipped = getDegreesFlipped();
+	private boolean drawLowDetailPage(Canvas canvas, Page page, ColorFilter lighting) {
+		final Bitmap snapshot = lowDetailSnapshotForPage(page);
+		if (snapshot == null) {
+			return false;
+		}
 		canvas.save();
-		mCamera.save();
+		canvas.scale(mDrawnLowDetailScale, mDrawnLowDetailScale);
+		mSnapshotPaint.setColorFilter(lighting);
+		canvas.drawBitmap(snapshot, 0, 0, mSnapshotPaint);
+		mSnapshotPaint.setColorFilter(null);
+		canvas.restore();
+		return true;
+	}
 
-		if (degreesFlipped > 90) {
-			canvas.clipRect(isFlippingVertically() ? mTopRect : mLeftRect);
-			if (mIsFlippingVertically) {
-				mCamera.rotateX(degreesFlipped - 180);
-			} else {
-				mCamera.rotateY(180 - degreesFlipped);
-			}
-		} else {
-			canvas.clipRect(isFlippingVertically() ? mBottomRect : mRightRect);
-			if (mIsFlippingVertically) {
-				mCamera.rotateX(degreesFlipped);
-			} else {
-				mCamera.rotateY(-degreesFlipped);
+	/**
+	 * Low detail snapshots only live while a flip is fast. The static halves
+	 * still show the full snapshot meanwhile, so both are held until then.
+	 */
+	private void releaseLowDetailSnapshots() {
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			final Page page = mActivePages.pageAt(i);
+			if (page.lowDetailSnapshot != null) {
+				releaseSnapshotBitmap(page.lowDetailSnapshot);
+				page.lowDetailSnapshot = null;
+				page.lowDetailSnapshotValid = false;
 			}
 		}
+	}
 
-		mCamera.getMatrix(mMatrix);
-		positionMatrix();
-		canvas.concat(mMatrix);
-		view.draw(canvas);
-		drawFlippingShadeShine(canvas);
-		mCamera.restore();
-		canvas.restore();
+	private Bitmap lowDetailSnapshotForPage(Page page) {
+		final int width = getWidth() / mDrawnLowDetailScale;
+		final int height = getHeight() / mDrawnLowDetailScale;
+		if (width <= 0 || height <= 0) {
+			return null;
+		}
+		if (page.lowDetailSnapshot != null && (page.lowDetailSnapshot.getWidth() != width
+				|| page.lowDetailSnapshot.getHeight() != height)) {
+			releaseSnapshotBitmap(page.lowDetailSnapshot);
+			page.lowDetailSnapshot = null;
+			page.lowDetailSnapshotValid = false;
+		}
+		if (page.lowDetailSnapshot != null && page.lowDetailSnapshotValid) {
+			return page.lowDetailSnapshot;
+		}
+		if (page.lowDetailSnapshot == null) {
+			page.lowDetailSnapshot = obtainSnapshotBitmap(width, height);
+			if (page.lowDetailSnapshot == null) {
+				return null;
+			}
+		} else {
+			page.lowDetailSnapshot.eraseColor(Color.TRANSPARENT);
+		}
+		mSnapshotCanvas.setBitmap(page.lowDetailSnapshot);
+		mSnapshotCanvas.save();
+		final float scale = 1f / mDrawnLowDetailScale;
+		mSnapshotCanvas.scale(scale, scale);
+		// Downsampling a full snapshot is cheaper than drawing the view again.
+		if (page.snapshot != null && page.snapshotValid && !page.snapshotDirty) {
+			mSnapshotCanvas.drawBitmap(page.snapshot, 0, 0, mSnapshotPaint);
+		} else {
+			drawPageView(mSnapshotCanvas, page);
+		}
+		mSnapshotCanvas.restore();
+		page.lowDetailSnapshotValid = true;
+		return page.lowDetailSnapshot;
 	}
 
-	private void drawFlippingShadeShine(Canvas canvas) {
-		final float degreesFlipped = getDegreesFlipped();
-		if (degreesFlipped < 90) {
-			final int alpha = (int) ((degreesFlipped / 90f) * MAX_SHINE_ALPHA);
-			mShinePaint.setAlpha(alpha);
-			canvas.drawRect(isFlippingVertically() ? mBottomRect : mRightRect,
-					mShinePaint);
+	private Bitmap snapshotForPage(Page page) {
+		final int width = getWidth();
+		final int height = getHeight();
+		if (width <= 0 || height <= 0) {
+			return null;
+		}
+		if (page.snapshot != null && page.snapshotValid && !page.snapshotDirty) {
+			return page.snapshot;
+		}
+		if (page.snapshot == null) {
+			page.snapshot = obtainSnapshotBitmap(width, height);
+			if (page.snapshot == null) {
+				return null;
+			}
 		} else {
-			final int alpha = (int) ((Math.abs(degreesFlipped - 180) / 90f) * MAX_SHADE_ALPHA);
-			mShadePaint.setAlpha(alpha);
-			canvas.drawRect(isFlippingVertically() ? mTopRect : mLeftRect,
-					mShadePaint);
+			page.snapshot.eraseColor(Color.TRANSPARENT);
 		}
+		mSnapshotCanvas.setBitmap(page.snapshot);
+		drawPageView(mSnapshotCanvas, page);
+		page.snapshotValid = true;
+		page.snapshotDirty = false;
+		return page.snapshot;
 	}
 
-	private void positionMatrix() {
-		mMatrix.preScale(0.25f, 0.25f);
-		mMatrix.postScale(4.0f, 4.0f);
-		mMatrix.preTranslate(-getWidth() / 2, -getHeight() / 2);
-		mMatrix.postTranslate(getWidth() / 2, getHeight() / 2);
+	private void requestAsyncSnapshot(Page page) {
+		final int width = getWidth();
+		final int height = getHeight();
+		if (loadStoredSnapshot(page)) {
+			return;
+		}
+		final Bitmap bitmap = obtainSnapshotBitmap(width, height);
+		if (bitmap == null) {
+			return;
+		}
+		PageRenderer pageRenderer = null;
+		Picture picture = null;
+		if (mAdapter instanceof PageRenderer && !page.rendererDeclined) {
+			pageRenderer = (PageRenderer) mAdapter;
+		} else {
+			picture = new Picture();
+			drawPageView(picture.beginRecording(width, height), page);
+			picture.endRecording();
+		}
+		page.renderPending = true;
+		mSnapshotRenderer.submit(page.position, page.generation, picture, pageRenderer,
+				bitmap);
 	}
 
-	private float getDegreesFlipped() {
-		final float localFlipDistance = mFlipDistance % FLIP_DISTANCE_PER_PAGE;
-		return (localFlipDistance / FLIP_DISTANCE_PER_PAGE) * 180;
+	/**
+	 * Starts reading the stored snapshot of a freshly bound page on the
+	 * renderer. Only tried once per bind, and what it reads only stands in
+	 * until the page has been rendered.
+	 */
+	private boolean loadStoredSnapshot(Page page) {
+		if (mSnapshotStore == null || page.storeChecked || page.snapshotValid
+				|| !mAdapter.hasStableIds()) {
+			return false;
+		}
+		page.storeChecked = true;
+		page.renderPending = true;
+		mSnapshotRenderer.load(page.position, page.generation, page.id, getWidth(),
+				getHeight(), mSnapshotStore, mBitmapPool);
+		return true;
 	}
 
-	private View viewForPage(int page) {
-		final int viewType = mAdapter.getItemViewType(page);
+	void onSnapshotLoaded(int position, int generation, Bitmap bitmap) {
+		if (position < 0) {
+			onPlaceholderLoaded(generation, bitmap);
+			return;
+		}
+		final Page page = mActivePages.get(position);
+		if (page == null || page.generation != generation) {
+			if (bitmap != null) {
+				releaseSnapshotBitmap(bitmap);
+			}
+			return;
+		}
+		page.renderPending = false;
+		if (bitmap != null) {
+			if (page.snapshot != null) {
+				releaseSnapshotBitmap(page.snapshot);
+			}
+			// The item may have changed under its id since it was stored.
+			page.snapshot = bitmap;
+			page.snapshotValid = true;
+			page.snapshotDirty = true;
+			invalidate();
+		}
+		schedulePrefetch();
+	}
 
-		View view = getActiveView(page);
-		if (view != null) {
-			return view;
+	/**
+	 * Hands the up to date snapshot of a page going away to the store. The
+	 * renderer gives the bitmap back to the pool once it is written.
+	 */
+	private void storeSnapshot(Page page) {
+		if (mSnapshotStore == null || mAdapter == null || !mAdapter.hasStableIds()
+				|| page.snapshot == null || !page.snapshotValid || page.snapshotDirty) {
+			return;
 		}
+		mSnapshotRenderer.save(page.id, page.snapshot, mSnapshotStore);
+		page.snapshot = null;
+		page.invalidateSnapshot();
+	}
 
-		view = mRecycler.getScrapView(page, viewType);
-		view = mAdapter.getView(page, view, this);
-		addToActiveView(view, page, viewType);
-		measureAndLayoutChild(view);
+	void onSnapshotRendered(int position, int generation, Bitmap bitmap, boolean rendered) {
+		final Page page = mActivePages.get(position);
+		if (page != null && page.generation == generation) {
+			page.renderPending = false;
+			if (!rendered) {
+				page.rendererDeclined = true;
+				schedulePrefetch();
+			} else if (bitmap.getWidth() == getWidth() && bitmap.getHeight() == getHeight()) {
+				if (page.snapshot != null) {
+					releaseSnapshotBitmap(page.snapshot);
+				}
+				page.snapshot = bitmap;
+				page.snapshotValid = true;
+				page.snapshotDirty = false;
+				invalidate();
+				return;
+			}
+		}
+		releaseSnapshotBitmap(bitmap);
+	}
 
-		return view;
+	private Bitmap obtainSnapshotBitmap(int width, int height) {
+		return mBitmapPool.get(width, height, Bitmap.Config.ARGB_8888);
 	}
 
-	private void measureAndLayoutChild(View view) {
-		int childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(getWidth(),
-				MeasureSpec.EXACTLY);
-		int childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(getHeight(),
-				MeasureSpec.EXACTLY);
-		measureChild(view, childWidthMeasureSpec, childHeightMeasureSpec);
-		layoutChild(view);
+	void releaseSnapshotBitmap(Bitmap bitmap) {
+		mBitmapPool.put(bitmap);
 	}
 
-	private void addToActiveView(View passedView, int page, int viewType) {
-		mActivePageQueue.add(new Page(page, passedView));
-		if (mActivePageQueue.size() > 3) {
-			final View view = mActivePageQueue.remove().view;
-			mRecycler.addScrapView(view, page, viewType);
+	private void stopSnapshotRenderer() {
+		mSnapshotRenderer.shutdown();
+		// Dropped jobs never report back, their pages must not wait on them.
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			mActivePages.pageAt(i).renderPending = false;
 		}
 	}
 
-	private View getActiveView(int position) {
-		Page page = null;
-		for (Page iPage : mActivePageQueue) {
-			if (iPage.position == position) {
-				page = iPage;
-			}
+	private void releaseSnapshot(Page page) {
+		if (page.snapshot != null) {
+			releaseSnapshotBitmap(page.snapshot);
+			page.snapshot = null;
 		}
-		if (page != null) {
-			mActivePageQueue.remove(page);
-			mActivePageQueue.add(page);
-			return page.view;
+		if (page.lowDetailSnapshot != null) {
+			releaseSnapshotBitmap(page.lowDetailSnapshot);
+			page.lowDetailSnapshot = null;
 		}
-		return null;
+		page.invalidateSnapshot();
 	}
 
-	private void postAddView(final View view) {
-		post(new Runnable() {
-
-			@Override
-			public void run() {
-				addView(view);
-			}
-		});
+	private void invalidatePageSnapshots() {
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			releaseSnapshot(mActivePages.pageAt(i));
+		}
 	}
 
-	private void postRemoveView(final View view) {
-		post(new Runnable() {
-
-			@Override
-			public void run() {
-				removeView(view);
-			}
-		});
+	private void clearActivePages() {
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			final Page page = mActivePages.pageAt(i);
+			releaseSnapshot(page);
+			page.unbind();
+		}
+		mWindowCenter = -1;
 	}
 
-	private void postFlippedToPage(final int page) {
-		post(new Runnable() {
-
-			@Override
-			public void run() {
-				mOnFlipListener.onFlippedToPage(FlipView.this, page,
-						mAdapter.getItemId(page));
-			}
-		});
+	private boolean isCurrentPage(Page page) {
+		return page.position == mCurrentPage || page.view.getParent() == this;
 	}
 
-	private float bindFlipDistance() {
-		final int minFlipDistance = 0;
-		final int maxFlipDistance = (mPageCount - 1) * FLIP_DISTANCE_PER_PAGE;
-		final float flipDistanceBeforeBinding = mFlipDistance;
-		if (mFlipDistance < minFlipDistance) {
-			mFlipDistance = 0;
-		} else if (mFlipDistance > maxFlipDistance) {
-			mFlipDistance = maxFlipDistance;
+	private static long snapshotBytes(Page page) {
+		long bytes = 0;
+		if (page.snapshot != null) {
+			bytes += BitmapPool.sizeOf(page.snapshot);
 		}
-		return flipDistanceBeforeBinding - mFlipDistance;
+		if (page.lowDetailSnapshot != null) {
+			bytes += BitmapPool.sizeOf(page.lowDetailSnapshot);
+		}
+		return bytes;
 	}
 
-	private void onSecondaryPointerUp(MotionEvent ev) {
+	private void recyclePage(Page page) {
+		storeSnapshot(page);
+		releaseSnapshot(page);
+		if (mTileCache != null) {
+			mTileCache.removePage(page.position);
+		}
+		// The attached page is still on screen until the settle removes it.
+		if (page.view.getParent() != this) {
+			resetContentOffset(page.view);
+			mRecycler.addScrapView(page.view, page.position, page.viewType);
+		}
+		page.unbind();
+	}
+
+	private void updateActiveWindow(int center) {
+		if (center == mWindowCenter) {
+			return;
+		}
+		mWindowCenter = center;
+		trimActivePages();
+		schedulePrefetch();
+	}
+
+	private void trimActivePages() {
+		if (mWindowCenter < 0) {
+			return;
+		}
+		final int first = mWindowCenter - mWindowPagesBefore;
+		final int last = mWindowCenter + mWindowPagesAfter;
+		if (mAdapter instanceof FocusAwareAdapter) {
+			((FocusAwareAdapter) mAdapter).setFocusPosition(mWindowCenter,
+					mWindowPagesBefore, mWindowPagesAfter);
+		}
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			final Page page = mActivePages.pageAt(i);
+			if (page.view != null && (page.position < first || page.position > last)
+					&& page.view.getParent() != this) {
+				recyclePage(page);
+			}
+		}
+	}
+
+	private void resizeActivePages() {
+		final PageWindow pages = new PageWindow(mOffscreenPagesBefore
+				+ mOffscreenPagesAfter + 1);
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			final Page page = mActivePages.pageAt(i);
+			if (page.view == null) {
+				continue;
+			}
+			final Page slot = pages.slotFor(page.position);
+			if (slot.view != null && page.view.getParent() == this) {
+				recyclePage(slot);
+			}
+			if (slot.view == null) {
+				slot.bind(page.position, page.view, page.viewType, page.id);
+				slot.snapshot = page.snapshot;
+				slot.snapshotValid = page.snapshotValid;
+				slot.snapshotDirty = page.snapshotDirty;
+				slot.contentGeneration = page.contentGeneration;
+				slot.lowDetailSnapshot = page.lowDetailSnapshot;
+				slot.lowDetailSnapshotValid = page.lowDetailSnapshotValid;
+				slot.rendererDeclined = page.rendererDeclined;
+				slot.storeChecked = page.storeChecked;
+				page.snapshot = null;
+				page.lowDetailSnapshot = null;
+				page.unbind();
+			} else {
+				recyclePage(page);
+			}
+		}
+		mActivePages = pages;
+	}
+
+	private void onFlipMotion(int direction, float pagesPerSecond) {
+		int before = mOffscreenPagesBefore;
+		int after = mOffscreenPagesAfter;
+		if (mAdaptiveOffscreenPages && direction != 0) {
+			// Lend pages from behind the flip to the side it is heading to,
+			// more the faster it goes, while keeping one page on either side.
+			final int spare = direction > 0 ? before - 1 : after - 1;
+			final int shift = Math.min(spare, (int) Math.ceil(pagesPerSecond));
+			if (direction > 0) {
+				before -= shift;
+				after += shift;
+			} else {
+				before += shift;
+				after -= shift;
+			}
+		}
+		if (direction != 0) {
+			mFlipDirection = direction;
+		}
+		if (before != mWindowPagesBefore || after != mWindowPagesAfter) {
+			mWindowPagesBefore = before;
+			mWindowPagesAfter = after;
+			trimActivePages();
+		}
+		schedulePrefetch();
+	}
+
+	private void schedulePrefetch() {
+		if ((mPrefetchPageCount > 0 || mAsyncSnapshotsEnabled) && mAdapter != null) {
+			mPrefetcher.schedule();
+		}
+	}
+
+	long getPrefetchSlackNanos(long now, long budgetNanos) {
+		if (!mIsFlipping && mScroller.isFinished() && mPeakAnim == null) {
+			return budgetNanos;
+		}
+		final long remaining = mLastFrameNanos + FRAME_INTERVAL_NANOS
+				- FRAME_SAFETY_MARGIN_NANOS - now;
+		return Math.max(0, Math.min(budgetNanos, remaining));
+	}
+
+	int nextPrefetchPosition() {
+		if (mAdapter == null || mIsSkipping || mOverviewMode || getWidth() <= 0 || getHeight() <= 0) {
+			return -1;
+		}
+		final int center = mWindowCenter >= 0 ? mWindowCenter : mCurrentPage;
+		final int ahead = mFlipDirection > 0 ? mWindowPagesAfter : mWindowPagesBefore;
+		final int count = Math.min(mPrefetchPageCount, ahead);
+		// The current page comes first, so its snapshot is ready when a flip
+		// starts; bound pages only need work while they lack one.
+		for (int i = mPageSnapshotsEnabled ? 0 : 1; i <= count; i++) {
+			final int position = center + mFlipDirection * i;
+			if (position < 0 || position >= mPageCount) {
+				break;
+			}
+			final Page page = mActivePages.get(position);
+			if (page == null || mPageSnapshotsEnabled
+					&& (!page.snapshotValid || page.snapshotDirty) && !page.renderPending) {
+				return position;
+			}
+		}
+		return -1;
+	}
+
+	void prefetchPage(int position) {
+		final Page page = pageForPosition(position);
+		if (mAsyncSnapshotsEnabled) {
+			requestAsyncSnapshot(page);
+		} else if (mPageSnapshotsEnabled) {
+			snapshotForPage(page);
+		}
+	}
+
+	private View viewForPage(int page) {
+		return pageForPosition(page).view;
+	}
+
+	Page pageForPosition(int position) {
+		Page page = mActivePages.get(position);
+		if (page != null) {
+			return page;
+		}
+
+		final int viewType = mAdapter.getItemViewType(position);
+		final View scrap = mRecycler.getScrapView(position, viewType);
+		final View view = getAdapterView(position, scrap);
+		if (view != scrap) {
+			mRecycler.onViewInflated();
+			if (scrap != null) {
+				mRecycler.addScrapView(scrap, position, viewType);
+			}
+		}
+		page = addToActiveView(view, position, viewType);
+		resetContentOffset(view);
+		measureAndLayoutChild(view);
+
+		return page;
+	}
+
+	private View getAdapterView(int position, View convertView) {
+		final long start = startStage();
+		final View view = mAdapter.getView(position, convertView, this);
+		endStage(FlipFrameStats.STAGE_GET_VIEW, start);
+		return view;
+	}
+
+	long startStage() {
+		return mFrameStats != null ? System.nanoTime() : 0;
+	}
+
+	void endStage(int stage, long start) {
+		if (mFrameStats != null) {
+			mFrameStats.record(stage, System.nanoTime() - start);
+		}
+	}
+
+	private void measureAndLayoutChild(View view) {
+		final long start = startStage();
+		int childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(getWidth(),
+				MeasureSpec.EXACTLY);
+		int childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(getHeight(),
+				MeasureSpec.EXACTLY);
+		measureChild(view, childWidthMeasureSpec, childHeightMeasureSpec);
+		layoutChild(view);
+		endStage(FlipFrameStats.STAGE_MEASURE_LAYOUT, start);
+	}
+
+	private Page addToActiveView(View passedView, int page, int viewType) {
+		final Page activePage = mActivePages.slotFor(page);
+		if (activePage.view != null) {
+			recyclePage(activePage);
+		}
+		activePage.bind(page, passedView, viewType, mAdapter.getItemId(page));
+		return activePage;
+	}
+
+	private float bindFlipDistance() {
+		final int minFlipDistance = 0;
+		final double maxFlipDistance = (double) (mPageCount - 1) * FLIP_DISTANCE_PER_PAGE;
+		final double flipDistanceBeforeBinding = mFlipDistance;
+		if (mFlipDistance < minFlipDistance) {
+			mFlipDistance = 0;
+		} else if (mFlipDistance > maxFlipDistance) {
+			mFlipDistance = maxFlipDistance;
+		}
+		return (float) (flipDistanceBeforeBinding - mFlipDistance);
+	}
+
+	private void onSecondaryPointerUp(MotionEvent ev) {
 		final int pointerIndex = MotionEventCompat.getActionIndex(ev);
 		final int pointerId = MotionEventCompat.getPointerId(ev, pointerIndex);
 		if (pointerId == mActivePointerId) {
@@ -733,24 +1682,93 @@ public class FlipView extends FrameLayout {
 		}
 	}
 
-	private int getFlipDuration(int deltaFlipDistance) {
-		float distance = Math.abs(deltaFlipDistance);
+	private int getFlipDuration(double deltaFlipDistance) {
+		double distance = Math.abs(deltaFlipDistance);
 		return (int) (MAX_SINGLE_PAGE_FLIP_ANIM_DURATION * Math.sqrt(distance
 				/ FLIP_DISTANCE_PER_PAGE));
 	}
 
 	private int getNextPage(int velocity) {
 		if (velocity > mMinimumVelocity) {
-			return getCurrentPageFloor();
+			return Math.max(0, getCurrentPageFloor() - getExtraFlingPages(velocity));
 		} else if (velocity < -mMinimumVelocity) {
-			return getCurrentPageCeil();
+			return Math.min(mPageCount - 1, getCurrentPageCeil()
+					+ getExtraFlingPages(velocity));
 		} else {
 			return getCurrentPageRound();
 		}
 	}
 
+	private int getExtraFlingPages(int velocity) {
+		if (mMaxFlingPages <= 1 || mMaximumVelocity <= mMinimumVelocity) {
+			return 0;
+		}
+		final float strength = (float) (Math.abs(velocity) - mMinimumVelocity)
+				/ (mMaximumVelocity - mMinimumVelocity);
+		return Math.min(mMaxFlingPages - 1, (int) (strength * mMaxFlingPages));
+	}
+
+	/**
+	 * Maps a page index in flip space to the adapter position to show. While
+	 * skipping, flip space holds only a few representative flips between the
+	 * source and destination; they are picked so consecutive flips use
+	 * consecutive page window slots and never evict each other.
+	 */
+	private int resolvePage(int index) {
+		if (!mIsSkipping) {
+			return index;
+		}
+		if (index <= 0) {
+			return mSkipLowPage;
+		} else if (index >= mSkipStepCount) {
+			return mSkipHighPage;
+		}
+		final int capacity = mActivePages.capacity();
+		final float exact = mSkipLowPage + (float) index
+				* (mSkipHighPage - mSkipLowPage) / mSkipStepCount;
+		final int base = mSkipLowPage + index;
+		return base + capacity * Math.round((exact - base) / capacity);
+	}
+
+	private boolean startSkip(int page) {
+		if (mSkipAheadSteps < 1) {
+			return false;
+		}
+		final int from = getCurrentPageRound();
+		final int low = Math.min(from, page);
+		final int high = Math.max(from, page);
+		final int capacity = mActivePages.capacity();
+		int steps = mSkipAheadSteps + 1;
+		steps += ((high - low - steps) % capacity + capacity) % capacity;
+		// Representatives must sit far enough apart to stay ordered once
+		// snapped to their window slot.
+		if (high - low < 2 * capacity * steps) {
+			return false;
+		}
+		final double offset = mFlipDistance - (double) from * FLIP_DISTANCE_PER_PAGE;
+		mIsSkipping = true;
+		mSkipLowPage = low;
+		mSkipHighPage = high;
+		mSkipStepCount = steps;
+		// An offset pointing away from the target would start outside the
+		// skip range, where no representative page exists.
+		mFlipDistance = Math.max(0, Math.min(steps * FLIP_DISTANCE_PER_PAGE,
+				(from == low ? 0 : steps * FLIP_DISTANCE_PER_PAGE) + offset));
+		return true;
+	}
+
+	private void endSkip() {
+		if (!mIsSkipping) {
+			return;
+		}
+		final int page = resolvePage(getCurrentPageRound());
+		mIsSkipping = false;
+		mFlipDistance = (double) page * FLIP_DISTANCE_PER_PAGE;
+		mWindowCenter = -1;
+	}
+
 	private int getCurrentPageRound() {
-		return Math.round(mFlipDistance / FLIP_DISTANCE_PER_PAGE);
+		return (int) Math.round(mFlipDistance / FLIP_DISTANCE_PER_PAGE);
 	}
 
 	private int getCurrentPageFloor() {
@@ -761,6 +1779,131 @@ public class FlipView extends FrameLayout {
 		return (int) Math.ceil(mFlipDistance / FLIP_DISTANCE_PER_PAGE);
 	}
 
+	private boolean onOverviewTouchEvent(MotionEvent motionEvent) {
+		trackVelocity(motionEvent);
+		final float y = motionEvent.getY();
+		switch (motionEvent.getAction() & MotionEvent.ACTION_MASK) {
+		case MotionEvent.ACTION_DOWN:
+			mOverviewScroller.forceFinished(true);
+			mOverviewDownY = y;
+			mLastY = y;
+			mIsScrubbing = false;
+			break;
+		case MotionEvent.ACTION_MOVE:
+			if (!mIsScrubbing && Math.abs(y - mOverviewDownY) > mTouchSlop) {
+				mIsScrubbing = true;
+			}
+			if (mIsScrubbing) {
+				scrollOverviewTo(mOverviewScroll - (y - mLastY));
+				mLastY = y;
+			}
+			break;
+		case MotionEvent.ACTION_UP:
+			if (mIsScrubbing) {
+				mVelocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
+				final int velocity = (int) mVelocityTracker.getYVelocity();
+				if (Math.abs(velocity) > mMinimumVelocity) {
+					mOverviewScroller.fling(0, (int) mOverviewScroll, 0, -velocity, 0, 0, 0,
+							(int) getMaxOverviewScroll());
+					invalidate();
+				}
+			} else {
+				final int position = getOverviewPositionAt(motionEvent.getX(), y);
+				if (position >= 0) {
+					// Only the page landed on gets bound.
+					setOverviewMode(false);
+					flipTo(position);
+				}
+			}
+			// fall through
+		case MotionEvent.ACTION_CANCEL:
+			mIsScrubbing = false;
+			if (mVelocityTracker != null) {
+				mVelocityTracker.recycle();
+				mVelocityTracker = null;
+			}
+			break;
+		}
+		return true;
+	}
+
+	private int getOverviewCellWidth() {
+		return getWidth() / mOverviewColumns;
+	}
+
+	private int getOverviewCellHeight() {
+		final int thumbnailWidth = getOverviewCellWidth() - 2 * mOverviewPadding;
+		return thumbnailWidth * getHeight() / Math.max(1, getWidth()) + 2 * mOverviewPadding;
+	}
+
+	private float getMaxOverviewScroll() {
+		final int rows = (mPageCount + mOverviewColumns - 1) / mOverviewColumns;
+		return Math.max(0, rows * getOverviewCellHeight() - getHeight());
+	}
+
+	private void scrollOverviewTo(float scroll) {
+		mOverviewScroll = Math.max(0, Math.min(getMaxOverviewScroll(), scroll));
+		invalidate();
+	}
+
+	private int getOverviewPositionAt(float x, float y) {
+		final int cellHeight = getOverviewCellHeight();
+		if (cellHeight <= 0) {
+			return -1;
+		}
+		final int column = Math.min(mOverviewColumns - 1, (int) (x / getOverviewCellWidth()));
+		final int row = (int) ((y + mOverviewScroll) / cellHeight);
+		final int position = row * mOverviewColumns + column;
+		return position < mPageCount ? position : -1;
+	}
+
+	private void drawOverview(Canvas canvas) {
+		if (mOverviewScroller.computeScrollOffset()) {
+			scrollOverviewTo(mOverviewScroller.getCurrY());
+		}
+		canvas.drawColor(OVERVIEW_BACKGROUND);
+		final int cellWidth = getOverviewCellWidth();
+		final int cellHeight = getOverviewCellHeight();
+		if (cellWidth <= 2 * mOverviewPadding || cellHeight <= 2 * mOverviewPadding) {
+			return;
+		}
+		mThumbnails.setSize(cellWidth - 2 * mOverviewPadding, cellHeight - 2 * mOverviewPadding,
+				getWidth(), getHeight(), mOverviewColumns);
+		final int firstRow = (int) (mOverviewScroll / cellHeight);
+		final int lastRow = (int) ((mOverviewScroll + getHeight()) / cellHeight);
+		final int first = firstRow * mOverviewColumns;
+		final int last = Math.min(mPageCount - 1, (lastRow + 1) * mOverviewColumns - 1);
+		mThumbnails.setVisibleRange(first, last);
+
+		final PageRenderer pageRenderer = mAdapter instanceof PageRenderer
+				? (PageRenderer) mAdapter : null;
+		final DiskSnapshotStore store = mAdapter.hasStableIds() ? mSnapshotStore : null;
+		for (int position = first; position <= last; position++) {
+			final int left = (position % mOverviewColumns) * cellWidth + mOverviewPadding;
+			final int top = (int) ((position / mOverviewColumns) * cellHeight - mOverviewScroll)
+					+ mOverviewPadding;
+			mThumbnailRect.set(left, top, left + cellWidth - 2 * mOverviewPadding, top
+					+ cellHeight - 2 * mOverviewPadding);
+			Bitmap thumbnail = mThumbnails.get(position, store != null ? mAdapter
+					.getItemId(position) : 0, pageRenderer, store);
+			if (thumbnail == null) {
+				// Bound pages may have a snapshot to stand in meanwhile.
+				final Page page = mActivePages.get(position);
+				if (page != null && page.snapshotValid) {
+					thumbnail = page.snapshot;
+				}
+			}
+			if (thumbnail != null) {
+				canvas.drawBitmap(thumbnail, null, mThumbnailRect, mThumbnailPaint);
+			} else {
+				canvas.drawRect(mThumbnailRect, mThumbnailPlaceholderPaint);
+			}
+			if (position == mCurrentPage) {
+				canvas.drawRect(mThumbnailRect, mOverviewHighlightPaint);
+			}
+		}
+	}
+
 	private boolean endFlip() {
 		final boolean wasflipping = mIsFlipping;
 		mIsFlipping = false;
@@ -777,45 +1920,149 @@ public class FlipView extends FrameLayout {
 	private boolean endScroll() {
 		final boolean wasScrolling = !mScroller.isFinished();
 		mScroller.abortAnimation();
+		endSkip();
 		return wasScrolling;
 	}
 
 	private boolean endPeak() {
-		final boolean wasPeaking = mPeakAnim != null;
-		if (mPeakAnim != null) {
-			mPeakAnim.cancel();
-			mPeakAnim = null;
-		}
+		mPeakPending = false;
+		removeCallbacks(mPeakRestart);
+		final boolean wasPeaking = cancelPeakAnim();
+		releasePeakSnapshots();
 		return wasPeaking;
 	}
 
-	private void peak(boolean next, boolean once) {
-		final float baseFlipDistance = mCurrentPage * FLIP_DISTANCE_PER_PAGE;
-		if (next) {
-			mPeakAnim = ValueAnimator.ofFloat(baseFlipDistance,
-					baseFlipDistance + FLIP_DISTANCE_PER_PAGE / 4);
+	private boolean cancelPeakAnim() {
+		final ValueAnimator anim = mPeakAnim;
+		if (anim == null) {
+			return false;
+		}
+		// Cleared first so the end listener knows the cycle didn't finish.
+		mPeakAnim = null;
+		anim.cancel();
+		return true;
+	}
+
+	/**
+	 * Peek snapshots are only kept while peeking unless flips use them too.
+	 */
+	private void releasePeakSnapshots() {
+		if (mPageSnapshotsEnabled || mAsyncSnapshotsEnabled) {
+			return;
+		}
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			releaseSnapshot(mActivePages.pageAt(i));
+		}
+	}
+
+	private boolean canPeak() {
+		return hasWindowFocus() && getWindowVisibility() == VISIBLE && isShown();
+	}
+
+	private void pausePeak() {
+		removeCallbacks(mPeakRestart);
+		if (cancelPeakAnim()) {
+			mFlipDistance = mPeakBaseDistance;
+			invalidate();
+		}
+		releasePeakSnapshots();
+	}
+
+	private void resumePeak() {
+		if (!mPeakPending || mPeakAnim != null) {
+			return;
+		}
+		if (!canPeak()) {
+			pausePeak();
+			return;
+		}
+		removeCallbacks(mPeakRestart);
+		if (mPeakNext ? mCurrentPage >= mPageCount - 1 : mCurrentPage <= 0) {
+			endPeak();
+			return;
+		}
+		startPeakCycle();
+	}
+
+	private void updatePeakState() {
+		if (!mPeakPending) {
+			return;
+		}
+		if (canPeak()) {
+			resumePeak();
 		} else {
-			mPeakAnim = ValueAnimator.ofFloat(baseFlipDistance,
-					baseFlipDistance - FLIP_DISTANCE_PER_PAGE / 4);
+			pausePeak();
+		}
+	}
+
+	@Override
+	public void onWindowFocusChanged(boolean hasWindowFocus) {
+		super.onWindowFocusChanged(hasWindowFocus);
+		updatePeakState();
+	}
+
+	@Override
+	protected void onWindowVisibilityChanged(int visibility) {
+		super.onWindowVisibilityChanged(visibility);
+		updatePeakState();
+	}
+
+	@Override
+	protected void onVisibilityChanged(View changedView, int visibility) {
+		super.onVisibilityChanged(changedView, visibility);
+		updatePeakState();
+	}
+
+	private void peak(boolean next, int cycles) {
+		endPeak();
+		mPeakNext = next;
+		mPeakCyclesLeft = cycles;
+		mPeakPending = true;
+		resumePeak();
+	}
+
+	/**
+	 * Runs one peek out and back. Cycles are spaced out so the view sleeps
+	 * between them instead of redrawing continuously.
+	 */
+	private void startPeakCycle() {
+		markPagesDirty();
+		// Animate the offset from the page only, the absolute distance can be
+		// too large for float precision.
+		mPeakBaseDistance = (double) mCurrentPage * FLIP_DISTANCE_PER_PAGE;
+		if (mPeakNext) {
+			mPeakAnim = ValueAnimator.ofFloat(0, FLIP_DISTANCE_PER_PAGE / 4);
+		} else {
+			mPeakAnim = ValueAnimator.ofFloat(0, -FLIP_DISTANCE_PER_PAGE / 4);
 		}
 		mPeakAnim.setInterpolator((Interpolator) mPeakInterpolator);
 		mPeakAnim.addUpdateListener(new AnimatorUpdateListener() {
 
 			@Override
 			public void onAnimationUpdate(ValueAnimator animation) {
-				mFlipDistance = (Float) animation.getAnimatedValue();
-				invalidate();
+				mFlipDistance = mPeakBaseDistance + (Float) animation.getAnimatedValue();
+				invalidateFlip(0);
 			}
 		});
 		mPeakAnim.addListener(new AnimatorListenerAdapter() {
 			@Override
 			public void onAnimationEnd(Animator animation) {
-				endPeak();
+				if (animation != mPeakAnim) {
+					return;
+				}
+				mPeakAnim = null;
+				mFlipDistance = mPeakBaseDistance;
+				invalidate();
+				if (mPeakCyclesLeft != PEAK_FOREVER && --mPeakCyclesLeft <= 0) {
+					endPeak();
+				} else {
+					postDelayed(mPeakRestart, PEAK_IDLE_DELAY);
+				}
 			}
 		});
 		mPeakAnim.setDuration(PEAK_ANIM_DURATION);
 		mPeakAnim.setRepeatMode(ValueAnimator.REVERSE);
-		mPeakAnim.setRepeatCount(once ? 1 : ValueAnimator.INFINITE);
+		mPeakAnim.setRepeatCount(1);
 		mPeakAnim.start();
 	}
 
@@ -831,23 +2078,189 @@ public class FlipView extends FrameLayout {
 			mAdapter.unregisterDataSetObserver(dataSetObserver);
 			mAdapter = null;
 		}
+		mPageSettler.cancel();
+		cancelDeferredBind();
 		removeAllViews();
-		mActivePageQueue.clear();
+		clearActivePages();
+		if (mThumbnails != null) {
+			mThumbnails.clear();
+		}
 		if (adapter != null) {
 			mAdapter = adapter;
 			mPageCount = mAdapter.getCount();
 			mAdapter.registerDataSetObserver(dataSetObserver);
 			mRecycler.setViewTypeCount(mAdapter.getViewTypeCount());
-			addView(viewForPage(mCurrentPage));
+			if (mSnapshotStore != null && mAdapter.hasStableIds() && mPageCount > 0) {
+				// The stored snapshot stands in for the first frame, binding
+				// waits until it has been drawn.
+				mBindDeferred = true;
+				if (getWidth() > 0 && getHeight() > 0) {
+					showPlaceholder();
+				}
+			} else {
+				addView(viewForPage(mCurrentPage));
+			}
+			schedulePrefetch();
 		} else {
 			mPageCount = 0;
 		}
 	}
 
+	private void showPlaceholder() {
+		releasePlaceholder();
+		if (mSnapshotStore == null) {
+			bindDeferredPage();
+			return;
+		}
+		mSnapshotRenderer.load(-1, ++mPlaceholderGeneration, mAdapter.getItemId(mCurrentPage),
+				getWidth(), getHeight(), mSnapshotStore, mBitmapPool);
+	}
+
+	private void onPlaceholderLoaded(int generation, Bitmap bitmap) {
+		if (!mBindDeferred || generation != mPlaceholderGeneration) {
+			if (bitmap != null) {
+				releaseSnapshotBitmap(bitmap);
+			}
+			return;
+		}
+		if (bitmap != null) {
+			mPlaceholder = bitmap;
+			post(mDeferredBind);
+			invalidate();
+		} else {
+			bindDeferredPage();
+		}
+	}
+
+	private void bindDeferredPage() {
+		cancelDeferredBind();
+		if (mAdapter != null && mPageCount > 0 && getChildCount() == 0) {
+			addView(viewForPage(mCurrentPage));
+		}
+		invalidate();
+	}
+
+	private void cancelDeferredBind() {
+		mBindDeferred = false;
+		removeCallbacks(mDeferredBind);
+		releasePlaceholder();
+	}
+
+	private void releasePlaceholder() {
+		if (mPlaceholder != null) {
+			releaseSnapshotBitmap(mPlaceholder);
+			mPlaceholder = null;
+		}
+	}
+
 	public ListAdapter getAdapter() {
 		return mAdapter;
 	}
 
+	public Recycler getRecycler() {
+		return mRecycler;
+	}
+
+	public void setRecycler(Recycler recycler) {
+		if (recycler == null) {
+			throw new IllegalArgumentException("Recycler can't be null");
+		}
+		if (recycler == mRecycler) {
+			return;
+		}
+		// View types are shared by index, so FlipViews sharing a recycler
+		// must use adapters that agree on what each view type means.
+		mRecycler.detach();
+		recycler.attach();
+		mRecycler = recycler;
+		if (mAdapter != null) {
+			mRecycler.setViewTypeCount(mAdapter.getViewTypeCount());
+		}
+	}
+
+	/**
+	 * Releases caches according to the given TRIM_MEMORY_* level, the higher
+	 * the level the more is dropped. The current page is always kept. Returns
+	 * the number of bitmap bytes released: what the pool held, and the
+	 * thumbnails, tiles and snapshots dropped into it before it is cleared.
+	 */
+	public long trimMemory(int level) {
+		if (level < TRIM_MEMORY_RUNNING_MODERATE) {
+			return 0;
+		}
+		// Everything dropped below goes back to the pool, which is cleared
+		// last, so it is counted as it goes in.
+		long released = mBitmapPool.getPooledBytes();
+		if (mThumbnails != null) {
+			released += mThumbnails.clear();
+		}
+		if (level >= TRIM_MEMORY_RUNNING_LOW && mTileCache != null) {
+			released += mTileCache.trimToSize(0, mCurrentPage);
+		}
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			final Page page = mActivePages.pageAt(i);
+			if (page.view == null || isCurrentPage(page)) {
+				continue;
+			}
+			if (level >= TRIM_MEMORY_BACKGROUND) {
+				// A stored snapshot is handed to the store, not released.
+				storeSnapshot(page);
+				released += snapshotBytes(page);
+				recyclePage(page);
+			} else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+				released += snapshotBytes(page);
+				releaseSnapshot(page);
+			}
+		}
+		// Recycled pages left their views in the scrap, so this comes after.
+		if (level >= TRIM_MEMORY_RUNNING_CRITICAL && !mRecycler.isShared()) {
+			mRecycler.clear();
+		}
+		mBitmapPool.clear();
+		return released;
+	}
+
+	/**
+	 * Sets a store that keeps page snapshots across launches, or null for
+	 * none. It needs an adapter with stable ids. Snapshots are written to it
+	 * as their page is recycled or the view detached; the first frame shows
+	 * the stored current page, and background snapshots show stored pages
+	 * until they have been rendered afresh.
+	 */
+	public void setSnapshotStore(DiskSnapshotStore store) {
+		mSnapshotStore = store;
+	}
+
+	public DiskSnapshotStore getSnapshotStore() {
+		return mSnapshotStore;
+	}
+
+	public BitmapPool getBitmapPool() {
+		return mBitmapPool;
+	}
+
+	public void setBitmapPool(BitmapPool pool) {
+		if (pool == null) {
+			throw new IllegalArgumentException("BitmapPool can't be null");
+		}
+		mBitmapPool = pool;
+	}
+
+	public void preinflatePages(int position, int count) {
+		if (mAdapter == null) {
+			throw new IllegalStateException("Can't preinflate pages without an adapter");
+		}
+		if (position < 0 || position > mPageCount - 1) {
+			throw new IllegalArgumentException("That page does not exist");
+		}
+		final int viewType = mAdapter.getItemViewType(position);
+		for (int i = 0; i < count; i++) {
+			final View view = getAdapterView(position, null);
+			mRecycler.onViewInflated();
+			mRecycler.addScrapView(view, position, viewType);
+		}
+	}
+
 	public int getPageCount() {
 		return mPageCount;
 	}
@@ -860,7 +2273,8 @@ public class FlipView extends FrameLayout {
 		if (page < 0 || page > mPageCount - 1) {
 			throw new IllegalArgumentException("That page does not exist");
 		}
-		mFlipDistance = page * FLIP_DISTANCE_PER_PAGE;
+		endScroll();
+		mFlipDistance = (double) page * FLIP_DISTANCE_PER_PAGE;
 		invalidate();
 	}
 
@@ -868,22 +2282,84 @@ public class FlipView extends FrameLayout {
 		if (page < 0 || page > mPageCount - 1) {
 			throw new IllegalArgumentException("That page does not exist");
 		}
-		final int start = (int) mFlipDistance;
-		final int delta = page * FLIP_DISTANCE_PER_PAGE - start;
+		// A scroll that carries on a drag or another scroll is the same flip.
+		if (!mIsFlipping && mScroller.isFinished() && mPeakAnim == null) {
+			markPagesDirty();
+		}
+		endScroll();
+		final int direction = Integer.signum(page - getCurrentPageRound());
+		double target = (double) page * FLIP_DISTANCE_PER_PAGE;
+		if (startSkip(page)) {
+			target = page == mSkipLowPage ? 0 : mSkipStepCount * FLIP_DISTANCE_PER_PAGE;
+		}
+		final double delta = target - mFlipDistance;
+		final int duration = getFlipDuration(delta);
 
-		mScroller.startScroll(0, start, 0, delta, getFlipDuration(delta));
+		if (duration > 0) {
+			onFlipMotion(direction, (float) (Math.abs(delta) * 1000
+					/ (FLIP_DISTANCE_PER_PAGE * duration)));
+		}
+		// Scroll relative to the start in sub-degree units, as fine as an int
+		// scroller allows for the distance, so precision doesn't depend on
+		// how deep into the document the flip is.
+		mScrollStartDistance = mFlipDistance;
+		mScrollTargetDistance = target;
+		mScrollUnitsPerDegree = Math.min(MAX_SCROLL_UNITS_PER_DEGREE,
+				Integer.MAX_VALUE / Math.max(1, Math.abs(delta)));
+		mScroller.startScroll(0, 0, 0, (int) Math.round(delta * mScrollUnitsPerDegree),
+				duration);
 		invalidate();
 	}
 
+	public void setMaxFlingPages(int pages) {
+		if (pages < 1) {
+			throw new IllegalArgumentException("A fling flips at least one page");
+		}
+		mMaxFlingPages = pages;
+	}
+
+	public int getMaxFlingPages() {
+		return mMaxFlingPages;
+	}
+
+	public void setSkipAheadSteps(int steps) {
+		if (steps < 0) {
+			throw new IllegalArgumentException("Can't have a negative number of steps");
+		}
+		mSkipAheadSteps = steps;
+	}
+
+	public int getSkipAheadSteps() {
+		return mSkipAheadSteps;
+	}
+
 	public void peakNext(boolean once) {
+		peakNext(once ? 1 : PEAK_FOREVER);
+	}
+
+	public void peakPrevious(boolean once) {
+		peakPrevious(once ? 1 : PEAK_FOREVER);
+	}
+
+	/**
+	 * Peeks at the next page the given number of times, or PEAK_FOREVER.
+	 * Peeking pauses while the window is unfocused or the view hidden.
+	 */
+	public void peakNext(int cycles) {
+		if (cycles == 0 || cycles < PEAK_FOREVER) {
+			throw new IllegalArgumentException("Can't peak " + cycles + " times");
+		}
 		if (mCurrentPage < mPageCount - 1) {
-			peak(true, once);
+			peak(true, cycles);
 		}
 	}
 
-	public void peakPrevious(boolean once) {
+	public void peakPrevious(int cycles) {
+		if (cycles == 0 || cycles < PEAK_FOREVER) {
+			throw new IllegalArgumentException("Can't peak " + cycles + " times");
+		}
 		if (mCurrentPage > 0) {
-			peak(false, once);
+			peak(false, cycles);
 		}
 	}
 
@@ -894,4 +2370,340 @@ public class FlipView extends FrameLayout {
 	public void setOnFlipListener(OnFlipListener onFlipListener) {
 		mOnFlipListener = onFlipListener;
 	}
+
+	public void setPageSnapshotsEnabled(boolean enabled) {
+		if (mPageSnapshotsEnabled == enabled) {
+			return;
+		}
+		mPageSnapshotsEnabled = enabled;
+		if (!enabled) {
+			setAsyncSnapshotsEnabled(false);
+			invalidatePageSnapshots();
+		}
+		invalidate();
+	}
+
+	public void notifyPagesChanged(int positionStart, int itemCount) {
+		if (mAdapter == null) {
+			return;
+		}
+		final int positionEnd = positionStart + itemCount;
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			final Page page = mActivePages.pageAt(i);
+			if (page.view != null && page.position >= positionStart
+					&& page.position < positionEnd && page.position < mPageCount) {
+				rebindPage(page);
+			}
+		}
+		invalidate();
+	}
+
+	public void setFrameStats(FlipFrameStats frameStats) {
+		mFrameStats = frameStats;
+	}
+
+	public FlipFrameStats getFrameStats() {
+		return mFrameStats;
+	}
+
+	public void setOffscreenPageLimit(int before, int after) {
+		if (before < 1 || after < 1) {
+			throw new IllegalArgumentException("Offscreen page limits must be >= 1");
+		}
+		if (before == mOffscreenPagesBefore && after == mOffscreenPagesAfter) {
+			return;
+		}
+		mOffscreenPagesBefore = before;
+		mOffscreenPagesAfter = after;
+		mWindowPagesBefore = before;
+		mWindowPagesAfter = after;
+		resizeActivePages();
+		trimActivePages();
+	}
+
+	public int getOffscreenPageLimitBefore() {
+		return mOffscreenPagesBefore;
+	}
+
+	public int getOffscreenPageLimitAfter() {
+		return mOffscreenPagesAfter;
+	}
+
+	public void setAdaptiveOffscreenPages(boolean adaptive) {
+		mAdaptiveOffscreenPages = adaptive;
+		if (!adaptive) {
+			onFlipMotion(0, 0);
+		}
+	}
+
+	public boolean isAdaptiveOffscreenPages() {
+		return mAdaptiveOffscreenPages;
+	}
+
+	public void setPrefetchPageCount(int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("Can't prefetch a negative number of pages");
+		}
+		mPrefetchPageCount = count;
+		if (count == 0) {
+			mPrefetcher.cancel();
+		} else {
+			schedulePrefetch();
+		}
+	}
+
+	public int getPrefetchPageCount() {
+		return mPrefetchPageCount;
+	}
+
+	public void setPrefetchFrameBudget(long millis) {
+		mPrefetcher.setFrameBudgetNanos(millis * 1000000L);
+	}
+
+	public long getPrefetchFrameBudget() {
+		return mPrefetcher.getFrameBudgetNanos() / 1000000L;
+	}
+
+	/**
+	 * Sets the divisor, 2 or 4, a flipping page's resolution is reduced by
+	 * while it turns faster than the low detail velocity. 1 disables it.
+	 */
+	public void setLowDetailScale(int scale) {
+		if (scale != 1 && scale != 2 && scale != 4) {
+			throw new IllegalArgumentException("Low detail scale must be 1, 2 or 4");
+		}
+		if (scale == mLowDetailScale) {
+			return;
+		}
+		mLowDetailScale = scale;
+		mLowDetail = false;
+		releaseLowDetailSnapshots();
+	}
+
+	public int getLowDetailScale() {
+		return mLowDetailScale;
+	}
+
+	public void setLowDetailVelocity(float degreesPerSecond) {
+		if (degreesPerSecond < 0) {
+			throw new IllegalArgumentException("Can't have a negative velocity");
+		}
+		mLowDetailVelocity = degreesPerSecond;
+	}
+
+	public float getLowDetailVelocity() {
+		return mLowDetailVelocity;
+	}
+
+	/**
+	 * Lets pages be larger than the view along any dimension their layout
+	 * params don't match_parent, and draws them from fixed-size tiles so a
+	 * frame only renders the cells it shows.
+	 */
+	public void setTiledPagesEnabled(boolean enabled) {
+		if (enabled == mTiledPagesEnabled) {
+			return;
+		}
+		mTiledPagesEnabled = enabled;
+		if (enabled) {
+			if (mTileCache == null) {
+				mTileCache = new TileCache(mBitmapPool, DEFAULT_TILE_SIZE, Runtime.getRuntime()
+						.maxMemory() / DEFAULT_TILE_CACHE_FRACTION);
+			}
+		} else if (mTileCache != null) {
+			mTileCache.clear();
+		}
+		for (int i = 0; i < mActivePages.capacity(); i++) {
+			final Page page = mActivePages.pageAt(i);
+			if (page.view != null) {
+				page.invalidateSnapshot();
+				measureAndLayoutChild(page.view);
+			}
+		}
+		requestLayout();
+		invalidate();
+	}
+
+	public boolean isTiledPagesEnabled() {
+		return mTiledPagesEnabled;
+	}
+
+	public void setTileSize(int tileSize) {
+		if (tileSize < 1) {
+			throw new IllegalArgumentException("Tile size must be > 0");
+		}
+		if (mTileCache == null) {
+			mTileCache = new TileCache(mBitmapPool, tileSize, Runtime.getRuntime().maxMemory()
+					/ DEFAULT_TILE_CACHE_FRACTION);
+		}
+		mTileCache.setTileSize(tileSize);
+		invalidate();
+	}
+
+	public int getTileSize() {
+		return mTileCache != null ? mTileCache.getTileSize() : DEFAULT_TILE_SIZE;
+	}
+
+	/**
+	 * Sets the most memory tiles may use. Tiles drawn in the current frame
+	 * are never evicted for each other, so a frame showing more than this
+	 * goes over it until the next one.
+	 */
+	public void setTileCacheSize(long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("Can't have a negative cache size");
+		}
+		if (mTileCache == null) {
+			mTileCache = new TileCache(mBitmapPool, DEFAULT_TILE_SIZE, maxBytes);
+		}
+		mTileCache.setMaxBytes(maxBytes);
+	}
+
+	/**
+	 * Scrolls the content of a current page larger than the view, in tiled
+	 * page mode.
+	 */
+	public void scrollPageContentTo(int x, int y) {
+		final View view = getChildAt(0);
+		if (view == null || !mTiledPagesEnabled) {
+			return;
+		}
+		final int left = clampContentOffset(-x, view.getWidth(), getWidth());
+		final int top = clampContentOffset(-y, view.getHeight(), getHeight());
+		mPanningContent = true;
+		view.layout(left, top, left + view.getWidth(), top + view.getHeight());
+		mPanningContent = false;
+		// Tiles stay valid, but the snapshot is of the page where it was.
+		final Page page = mActivePages.get(view);
+		if (page != null) {
+			page.invalidateSnapshot();
+		}
+		invalidate();
+	}
+
+	public int getPageContentScrollX() {
+		final View view = getChildAt(0);
+		return view != null ? -view.getLeft() : 0;
+	}
+
+	public int getPageContentScrollY() {
+		final View view = getChildAt(0);
+		return view != null ? -view.getTop() : 0;
+	}
+
+	/**
+	 * Shows a scrollable grid of page thumbnails instead of the current page.
+	 * Tapping one flips to it and leaves the overview. Thumbnails come from
+	 * the adapter if it is a PageRenderer or from the snapshot store, made
+	 * in the background; no page is bound for them.
+	 */
+	public void setOverviewMode(boolean overviewMode) {
+		if (overviewMode == mOverviewMode) {
+			return;
+		}
+		if (overviewMode) {
+			if (mAdapter == null) {
+				throw new IllegalStateException("Can't show an overview without an adapter");
+			}
+			endScroll();
+			endPeak();
+			endFlip();
+			if (mThumbnails == null) {
+				mThumbnails = new ThumbnailCache(this, mBitmapPool, (int) (Runtime
+						.getRuntime().maxMemory() / DEFAULT_THUMBNAIL_CACHE_FRACTION));
+			}
+			mOverviewMode = true;
+			final int cellHeight = getOverviewCellHeight();
+			scrollOverviewTo((mCurrentPage / mOverviewColumns) * cellHeight
+					- (getHeight() - cellHeight) / 2f);
+		} else {
+			mOverviewMode = false;
+			mOverviewScroller.forceFinished(true);
+			if (mThumbnails != null) {
+				mThumbnails.shutdown();
+			}
+			schedulePrefetch();
+		}
+		invalidate();
+	}
+
+	public boolean isOverviewMode() {
+		return mOverviewMode;
+	}
+
+	public void setOverviewColumns(int columns) {
+		if (columns < 1) {
+			throw new IllegalArgumentException("Can't have less than one column");
+		}
+		mOverviewColumns = columns;
+		if (mOverviewMode) {
+			scrollOverviewTo(mOverviewScroll);
+		}
+	}
+
+	public int getOverviewColumns() {
+		return mOverviewColumns;
+	}
+
+	/**
+	 * Sets how flips are drawn, FoldFlipRenderer by default. Renderers draw
+	 * pages through the FlipFrame, so snapshot modes apply to any of them.
+	 */
+	public void setFlipRenderer(FlipRenderer renderer) {
+		if (renderer == null) {
+			throw new IllegalArgumentException("FlipRenderer can't be null");
+		}
+		mFlipRenderer = renderer;
+		invalidate();
+	}
+
+	public FlipRenderer getFlipRenderer() {
+		return mFlipRenderer;
+	}
+
+	/**
+	 * Sets a governor that turns off costly effects while flip frames run
+	 * over its budget, or null to always draw everything.
+	 */
+	public void setFrameBudgetGovernor(FrameBudgetGovernor governor) {
+		mGovernor = governor;
+		invalidate();
+	}
+
+	public FrameBudgetGovernor getFrameBudgetGovernor() {
+		return mGovernor;
+	}
+
+	public void setAsyncSnapshotsEnabled(boolean enabled) {
+		if (mAsyncSnapshotsEnabled == enabled) {
+			return;
+		}
+		mAsyncSnapshotsEnabled = enabled;
+		if (enabled) {
+			setPageSnapshotsEnabled(true);
+			schedulePrefetch();
+		} else {
+			stopSnapshotRenderer();
+			// The placeholder may have been read on the renderer too.
+			if (mBindDeferred && mPlaceholder == null && getWidth() > 0 && getHeight() > 0) {
+				showPlaceholder();
+			}
+		}
+	}
+
+	public boolean isAsyncSnapshotsEnabled() {
+		return mAsyncSnapshotsEnabled;
+	}
+
+	public boolean isPageSnapshotsEnabled() {
+		return mPageSnapshotsEnabled;
+	}
+
+	public void invalidatePageSnapshot(int position) {
+		final Page page = mActivePages.get(position);
+		if (page != null) {
+			page.invalidateContent();
+			invalidate();
+		}
+	}
 }
\ No newline at end of file
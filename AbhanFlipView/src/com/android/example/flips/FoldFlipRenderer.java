@@ -0,0 +1,158 @@
+package com.android.example.flips;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Paint.Style;
+import android.graphics.Rect;
+
+public class FoldFlipRenderer implements FlipRenderer {
+
+	private static final int MAX_SHADOW_ALPHA = 180;
+	private static final int MAX_SHADE_ALPHA = 130;
+	private static final int MAX_SHINE_ALPHA = 100;
+
+	private FlipTransformTable mFlipTransforms = new FlipTransformTable();
+	private FlipLighting mLighting = new FlipLighting();
+	private Matrix mMatrix = new Matrix();
+	private Rect mClipBounds = new Rect();
+
+	private Paint mShadowPaint = new Paint();
+	private Paint mShadePaint = new Paint();
+	private Paint mShinePaint = new Paint();
+
+	public FoldFlipRenderer() {
+		mShadowPaint.setColor(Color.BLACK);
+		mShadowPaint.setStyle(Style.FILL);
+		mShadePaint.setColor(Color.BLACK);
+		mShadePaint.setStyle(Style.FILL);
+		mShinePaint.setColor(Color.WHITE);
+		mShinePaint.setStyle(Style.FILL);
+	}
+
+	@Override
+	public boolean isHalfLocal() {
+		return true;
+	}
+
+	@Override
+	public void drawFlip(Canvas canvas, FlipFrame frame) {
+		// Skip whole halves that lie outside a partial invalidation.
+		canvas.getClipBounds(mClipBounds);
+		if (Rect.intersects(mClipBounds, frame.getPreviousHalf())) {
+			drawPreviousHalf(canvas, frame);
+		}
+		if (Rect.intersects(mClipBounds, frame.getNextHalf())) {
+			drawNextHalf(canvas, frame);
+		}
+		if (Rect.intersects(mClipBounds, frame.getDegrees() > 90 ? frame.getPreviousHalf()
+				: frame.getNextHalf())) {
+			drawFlippingHalf(canvas, frame);
+		}
+	}
+
+	private void drawPreviousHalf(Canvas canvas, FlipFrame frame) {
+		final int shadowAlpha = getPreviousShadowAlpha(frame);
+		canvas.save();
+		canvas.clipRect(frame.getPreviousHalf());
+		long start = frame.startStage();
+		final boolean lit = frame.drawSource(canvas, mLighting.darken(shadowAlpha), false);
+		frame.endStage(FlipFrameStats.STAGE_DRAW_PREVIOUS, start);
+		if (!lit) {
+			start = frame.startStage();
+			drawShadow(canvas, shadowAlpha);
+			frame.endStage(FlipFrameStats.STAGE_LIGHTING, start);
+		}
+		canvas.restore();
+	}
+
+	private int getPreviousShadowAlpha(FlipFrame frame) {
+		final float degreesFlipped = frame.getDegrees();
+		if (degreesFlipped > 90
+				&& frame.getEffectLevel() < FrameBudgetGovernor.LEVEL_NO_SHADOWS) {
+			return (int) (((degreesFlipped - 90) / 90f) * MAX_SHADOW_ALPHA);
+		}
+		return 0;
+	}
+
+	private void drawShadow(Canvas canvas, int alpha) {
+		if (alpha > 0) {
+			mShadowPaint.setAlpha(alpha);
+			canvas.drawPaint(mShadowPaint);
+		}
+	}
+
+	private void drawNextHalf(Canvas canvas, FlipFrame frame) {
+		final int shadowAlpha = getNextShadowAlpha(frame);
+		canvas.save();
+		canvas.clipRect(frame.getNextHalf());
+		long start = frame.startStage();
+		final boolean lit = frame.drawDestination(canvas, mLighting.darken(shadowAlpha), false);
+		frame.endStage(FlipFrameStats.STAGE_DRAW_NEXT, start);
+		if (!lit) {
+			start = frame.startStage();
+			drawShadow(canvas, shadowAlpha);
+			frame.endStage(FlipFrameStats.STAGE_LIGHTING, start);
+		}
+		canvas.restore();
+	}
+
+	private int getNextShadowAlpha(FlipFrame frame) {
+		final float degreesFlipped = frame.getDegrees();
+		if (degreesFlipped < 90
+				&& frame.getEffectLevel() < FrameBudgetGovernor.LEVEL_NO_SHADOWS) {
+			return (int) ((Math.abs(degreesFlipped - 90) / 90f) * MAX_SHADOW_ALPHA);
+		}
+		return 0;
+	}
+
+	private void drawFlippingHalf(Canvas canvas, FlipFrame frame) {
+		final float degreesFlipped = frame.getDegrees();
+		final boolean shine = degreesFlipped < 90;
+		final int effectLevel = frame.getEffectLevel();
+		final int alpha;
+		if (shine) {
+			alpha = effectLevel >= FrameBudgetGovernor.LEVEL_NO_SHINE ? 0
+					: (int) ((degreesFlipped / 90f) * MAX_SHINE_ALPHA);
+		} else {
+			alpha = effectLevel >= FrameBudgetGovernor.LEVEL_NO_SHADE ? 0
+					: (int) ((Math.abs(degreesFlipped - 180) / 90f) * MAX_SHADE_ALPHA);
+		}
+		canvas.save();
+
+		if (degreesFlipped > 90) {
+			canvas.clipRect(frame.getPreviousHalf());
+		} else {
+			canvas.clipRect(frame.getNextHalf());
+		}
+
+		mFlipTransforms.setup(frame.getWidth(), frame.getHeight(), frame.isVertical());
+		mFlipTransforms.getMatrix(degreesFlipped, mMatrix);
+		canvas.concat(mMatrix);
+		long start = frame.startStage();
+		final ColorFilter lighting = shine ? mLighting.brighten(alpha) : mLighting.darken(alpha);
+		// The page turning over is the source until it passes the fold.
+		final boolean lit = degreesFlipped < 90 ? frame.drawSource(canvas, lighting, true)
+				: frame.drawDestination(canvas, lighting, true);
+		frame.endStage(FlipFrameStats.STAGE_DRAW_FLIPPING, start);
+		if (!lit && alpha > 0) {
+			start = frame.startStage();
+			drawFlippingShadeShine(canvas, frame, shine, alpha);
+			frame.endStage(FlipFrameStats.STAGE_LIGHTING, start);
+		}
+		canvas.restore();
+	}
+
+	private void drawFlippingShadeShine(Canvas canvas, FlipFrame frame, boolean shine,
+			int alpha) {
+		if (shine) {
+			mShinePaint.setAlpha(alpha);
+			canvas.drawRect(frame.getNextHalf(), mShinePaint);
+		} else {
+			mShadePaint.setAlpha(alpha);
+			canvas.drawRect(frame.getPreviousHalf(), mShadePaint);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.android.example.flips;
+
+public class FrameBudgetGovernor {
+
+	public static final int LEVEL_FULL = 0;
+	public static final int LEVEL_NO_SHINE = 1;
+	public static final int LEVEL_NO_SHADE = 2;
+	public static final int LEVEL_NO_SHADOWS = 3;
+	public static final int LEVEL_LOW_DETAIL = 4;
+
+	public static final long DEFAULT_FRAME_BUDGET_NANOS = 8000000L;
+
+	private static final int WINDOW_FRAMES = 8;
+	private static final int DEGRADE_OVERRUNS = 3;
+	private static final float RESTORE_FRACTION = 0.6f;
+
+	public interface OnLevelChangeListener {
+		public void onLevelChanged(FrameBudgetGovernor governor, int oldLevel, int newLevel,
+				long averageFrameNanos);
+	}
+
+	private final long[] mFrameNanos = new long[WINDOW_FRAMES];
+	private int mFrameCount;
+	private long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+	private int mMaxLevel = LEVEL_LOW_DETAIL;
+	private int mLevel = LEVEL_FULL;
+	private OnLevelChangeListener mOnLevelChangeListener;
+
+	/**
+	 * Records the draw time of one animation frame. Returns true if the
+	 * level changed.
+	 */
+	boolean onFrame(long frameNanos) {
+		mFrameNanos[mFrameCount % WINDOW_FRAMES] = frameNanos;
+		mFrameCount++;
+
+		int overruns = 0;
+		boolean headroom = mFrameCount >= WINDOW_FRAMES;
+		long total = 0;
+		final int count = Math.min(mFrameCount, WINDOW_FRAMES);
+		for (int i = 0; i < count; i++) {
+			if (mFrameNanos[i] > mFrameBudgetNanos) {
+				overruns++;
+			}
+			if (mFrameNanos[i] > mFrameBudgetNanos * RESTORE_FRACTION) {
+				headroom = false;
+			}
+			total += mFrameNanos[i];
+		}
+
+		// Every change starts a fresh window, so one step has to prove itself
+		// before the next, and restoring needs a full window well under budget.
+		if (overruns >= DEGRADE_OVERRUNS && mLevel < mMaxLevel) {
+			setLevel(mLevel + 1, total / count);
+			return true;
+		} else if (headroom && mLevel > LEVEL_FULL) {
+			setLevel(mLevel - 1, total / count);
+			return true;
+		}
+		return false;
+	}
+
+	private void setLevel(int level, long averageFrameNanos) {
+		final int oldLevel = mLevel;
+		mLevel = level;
+		mFrameCount = 0;
+		if (mOnLevelChangeListener != null) {
+			mOnLevelChangeListener.onLevelChanged(this, oldLevel, level, averageFrameNanos);
+		}
+	}
+
+	public int getLevel() {
+		return mLevel;
+	}
+
+	public void setMaxLevel(int maxLevel) {
+		if (maxLevel < LEVEL_FULL || maxLevel > LEVEL_LOW_DETAIL) {
+			throw new IllegalArgumentException("Unknown level " + maxLevel);
+		}
+		mMaxLevel = maxLevel;
+		if (mLevel > maxLevel) {
+			setLevel(maxLevel, 0);
+		}
+	}
+
+	public int getMaxLevel() {
+		return mMaxLevel;
+	}
+
+	public void setFrameBudgetNanos(long frameBudgetNanos) {
+		if (frameBudgetNanos <= 0) {
+			throw new IllegalArgumentException("Frame budget must be > 0");
+		}
+		mFrameBudgetNanos = frameBudgetNanos;
+	}
+
+	public long getFrameBudgetNanos() {
+		return mFrameBudgetNanos;
+	}
+
+	public void setOnLevelChangeListener(OnLevelChangeListener listener) {
+		mOnLevelChangeListener = listener;
+	}
+
+	public void reset() {
+		mFrameCount = 0;
+		if (mLevel != LEVEL_FULL) {
+			setLevel(LEVEL_FULL, 0);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.android.example.flips;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+
+class PagePrefetcher implements MessageQueue.IdleHandler {
+
+	private static final long DEFAULT_FRAME_BUDGET_NANOS = 4000000L;
+
+	private final FlipView mFlipView;
+	private boolean mScheduled;
+	private long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+	private long mAverageBindNanos;
+
+	PagePrefetcher(FlipView flipView) {
+		mFlipView = flipView;
+	}
+
+	void setFrameBudgetNanos(long frameBudgetNanos) {
+		mFrameBudgetNanos = frameBudgetNanos;
+	}
+
+	long getFrameBudgetNanos() {
+		return mFrameBudgetNanos;
+	}
+
+	void schedule() {
+		if (!mScheduled) {
+			mScheduled = true;
+			Looper.myQueue().addIdleHandler(this);
+		}
+	}
+
+	void cancel() {
+		if (mScheduled) {
+			mScheduled = false;
+			Looper.myQueue().removeIdleHandler(this);
+		}
+	}
+
+	@Override
+	public boolean queueIdle() {
+		final long start = System.nanoTime();
+		final long slack = mFlipView.getPrefetchSlackNanos(start, mFrameBudgetNanos);
+		final long deadline = start + slack;
+		final boolean animating = slack < mFrameBudgetNanos;
+		int position;
+		int lastPosition = -1;
+		int bound = 0;
+		while ((position = mFlipView.nextPrefetchPosition()) >= 0) {
+			if (position == lastPosition) {
+				// No progress, e.g. no memory left for a snapshot; retry on the
+				// next schedule rather than spinning on it.
+				position = -1;
+				break;
+			}
+			lastPosition = position;
+			final long now = System.nanoTime();
+			// While a flip animates only work that fits the frame slack may run;
+			// when truly idle always make progress by at least one page.
+			if (now + mAverageBindNanos > deadline && (animating || bound > 0)) {
+				break;
+			}
+			mFlipView.prefetchPage(position);
+			final long cost = System.nanoTime() - now;
+			mAverageBindNanos = mAverageBindNanos == 0 ? cost
+					: (mAverageBindNanos * 3 + cost) / 4;
+			bound++;
+		}
+		mScheduled = position >= 0;
+		return mScheduled;
+	}
+}
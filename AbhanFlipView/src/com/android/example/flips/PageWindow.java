@@ -0,0 +1,58 @@
+package com.android.example.flips;
+
+import android.view.View;
+import com.android.example.flips.FlipView.Page;
+
+class PageWindow {
+
+	private final Page[] mPages;
+
+	PageWindow(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Can't have a capacity < 1");
+		}
+		mPages = new Page[capacity];
+		for (int i = 0; i < capacity; i++) {
+			mPages[i] = new Page();
+		}
+	}
+
+	int capacity() {
+		return mPages.length;
+	}
+
+	Page get(int position) {
+		final Page page = mPages[slot(position)];
+		if (page.view != null && page.position == position) {
+			return page;
+		}
+		return null;
+	}
+
+	Page get(View view) {
+		for (Page page : mPages) {
+			if (page.view != null && page.view == view) {
+				return page;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the slot a page for the given position lives in. Any contiguous
+	 * run of positions no longer than the capacity maps to distinct slots, so
+	 * a still bound occupant is always outside the window and can be evicted.
+	 */
+	Page slotFor(int position) {
+		return mPages[slot(position)];
+	}
+
+	Page pageAt(int index) {
+		return mPages[index];
+	}
+
+	private int slot(int position) {
+		final int slot = position % mPages.length;
+		return slot < 0 ? slot + mPages.length : slot;
+	}
+}
@@ -1,61 +1,202 @@
 package com.android.example.flips;
 
-import android.util.SparseArray;
 import android.view.View;
 
 public class Recycler {
 
-	private SparseArray<View>[] scrapViews;
+	public static final int DEFAULT_MAX_SCRAP_VIEWS = 4;
+
+	static class ScrapHeap {
+		View[] views;
+		int[] positions;
+		int size;
+
+		ScrapHeap(int capacity) {
+			views = new View[capacity];
+			positions = new int[capacity];
+		}
+
+		void setCapacity(int capacity) {
+			final View[] views = new View[capacity];
+			final int[] positions = new int[capacity];
+			final int kept = Math.min(size, capacity);
+			// Keep the most recently scrapped views.
+			System.arraycopy(this.views, size - kept, views, 0, kept);
+			System.arraycopy(this.positions, size - kept, positions, 0, kept);
+			this.views = views;
+			this.positions = positions;
+			size = kept;
+		}
+
+		View retrieve(int position) {
+			if (size == 0) {
+				return null;
+			}
+			int index = size - 1;
+			for (int i = 0; i < size; i++) {
+				if (positions[i] == position) {
+					index = i;
+					break;
+				}
+			}
+			final View result = views[index];
+			System.arraycopy(views, index + 1, views, index, size - index - 1);
+			System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+			views[--size] = null;
+			return result;
+		}
+
+		boolean add(View scrap, int position) {
+			boolean evicted = false;
+			if (size == views.length) {
+				if (size == 0) {
+					return true;
+				}
+				System.arraycopy(views, 1, views, 0, size - 1);
+				System.arraycopy(positions, 1, positions, 0, size - 1);
+				size--;
+				evicted = true;
+			}
+			views[size] = scrap;
+			positions[size] = position;
+			size++;
+			return evicted;
+		}
+
+		void clear() {
+			for (int i = 0; i < size; i++) {
+				views[i] = null;
+			}
+			size = 0;
+		}
+	}
+
+	private ScrapHeap[] scrapHeaps = new ScrapHeap[0];
+	private int[] maxScrapViews = new int[0];
 	private int viewTypeCount;
-	private SparseArray<View> currentScrapViews;
+	private int attachCount;
+
+	private int hitCount;
+	private int missCount;
+	private int inflationCount;
+	private int evictionCount;
 
 	void setViewTypeCount(int viewTypeCount) {
 		if (viewTypeCount < 1) {
 			throw new IllegalArgumentException("Can't have a viewTypeCount < 1");
 		}
+		// Only ever grow, the heaps may be shared by several FlipViews.
+		if (viewTypeCount <= this.viewTypeCount) {
+			return;
+		}
 
-		@SuppressWarnings("unchecked")
-		SparseArray<View>[] scrapViews = new SparseArray[viewTypeCount];
+		final ScrapHeap[] scrapHeaps = new ScrapHeap[viewTypeCount];
+		final int[] maxScrapViews = new int[viewTypeCount];
 		for (int i = 0; i < viewTypeCount; i++) {
-			scrapViews[i] = new SparseArray<View>();
+			maxScrapViews[i] = i < this.maxScrapViews.length ? this.maxScrapViews[i]
+					: DEFAULT_MAX_SCRAP_VIEWS;
+			scrapHeaps[i] = i < this.viewTypeCount ? this.scrapHeaps[i]
+					: new ScrapHeap(maxScrapViews[i]);
 		}
 		this.viewTypeCount = viewTypeCount;
-		currentScrapViews = scrapViews[0];
-		this.scrapViews = scrapViews;
+		this.maxScrapViews = maxScrapViews;
+		this.scrapHeaps = scrapHeaps;
 	}
 
 	View getScrapView(int position, int viewType) {
-		if (viewTypeCount == 1) {
-			return retrieveFromScrap(currentScrapViews, position);
-		} else if (viewType >= 0 && viewType < scrapViews.length) {
-			return retrieveFromScrap(scrapViews[viewType], position);
+		View result = null;
+		if (viewType >= 0 && viewType < viewTypeCount) {
+			result = scrapHeaps[viewType].retrieve(position);
 		}
-		return null;
+		if (result != null) {
+			hitCount++;
+		} else {
+			missCount++;
+		}
+		return result;
 	}
 
 	void addScrapView(View scrap, int position, int viewType) {
-		if (viewTypeCount == 1) {
-			currentScrapViews.put(position, scrap);
-		} else {
-			scrapViews[viewType].put(position, scrap);
+		if (viewType < 0 || viewType >= viewTypeCount) {
+			evictionCount++;
+			return;
+		}
+		if (scrapHeaps[viewType].add(scrap, position)) {
+			evictionCount++;
 		}
 	}
 
-	static View retrieveFromScrap(SparseArray<View> scrapViews, int position) {
-		int size = scrapViews.size();
-		if (size > 0) {
-			View result = scrapViews.get(position, null);
-			if (result != null) {
-				scrapViews.remove(position);
-				return result;
-			}
-			
-			int index = size - 1;
-			result = scrapViews.valueAt(index);
-			scrapViews.remove(scrapViews.keyAt(index));
+	void attach() {
+		attachCount++;
+	}
 
-			return result;
+	void detach() {
+		attachCount--;
+	}
+
+	boolean isShared() {
+		return attachCount > 1;
+	}
+
+	void onViewInflated() {
+		inflationCount++;
+	}
+
+	void clear() {
+		for (int i = 0; i < viewTypeCount; i++) {
+			scrapHeaps[i].clear();
+		}
+	}
+
+	public void setMaxScrapViews(int viewType, int max) {
+		if (max < 0) {
+			throw new IllegalArgumentException("Can't have a negative scrap size");
+		}
+		if (viewType >= maxScrapViews.length) {
+			final int[] maxScrapViews = new int[viewType + 1];
+			for (int i = 0; i < maxScrapViews.length; i++) {
+				maxScrapViews[i] = i < this.maxScrapViews.length ? this.maxScrapViews[i]
+						: DEFAULT_MAX_SCRAP_VIEWS;
+			}
+			this.maxScrapViews = maxScrapViews;
+		}
+		maxScrapViews[viewType] = max;
+		if (viewType < viewTypeCount) {
+			final ScrapHeap heap = scrapHeaps[viewType];
+			evictionCount += Math.max(0, heap.size - max);
+			heap.setCapacity(max);
 		}
-		return null;
 	}
-}
\ No newline at end of file
+
+	public int getMaxScrapViews(int viewType) {
+		return viewType < maxScrapViews.length ? maxScrapViews[viewType]
+				: DEFAULT_MAX_SCRAP_VIEWS;
+	}
+
+	public int getScrapViewCount(int viewType) {
+		return viewType >= 0 && viewType < viewTypeCount ? scrapHeaps[viewType].size : 0;
+	}
+
+	public int getHitCount() {
+		return hitCount;
+	}
+
+	public int getMissCount() {
+		return missCount;
+	}
+
+	public int getInflationCount() {
+		return inflationCount;
+	}
+
+	public int getEvictionCount() {
+		return evictionCount;
+	}
+
+	public void resetStats() {
+		hitCount = 0;
+		missCount = 0;
+		inflationCount = 0;
+		evictionCount = 0;
+	}
+}
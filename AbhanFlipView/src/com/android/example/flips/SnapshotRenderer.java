@@ -0,0 +1,173 @@
+package com.android.example.flips;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+class SnapshotRenderer {
+
+	private static final ThreadFactory sThreadFactory = new ThreadFactory() {
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					runnable.run();
+				}
+			}, "FlipView snapshots");
+			thread.setDaemon(true);
+			return thread;
+		}
+	};
+
+	private static final int JOB_RENDER = 0;
+	private static final int JOB_LOAD = 1;
+	private static final int JOB_SAVE = 2;
+
+	class Job implements Runnable {
+		final int kind;
+		final int position;
+		final int generation;
+		final Picture picture;
+		final FlipView.PageRenderer pageRenderer;
+		final long id;
+		final DiskSnapshotStore store;
+		final BitmapPool pool;
+		final int width;
+		final int height;
+		Bitmap bitmap;
+		boolean rendered;
+
+		Job(int kind, int position, int generation, Picture picture,
+				FlipView.PageRenderer pageRenderer, Bitmap bitmap, long id,
+				DiskSnapshotStore store, BitmapPool pool, int width, int height) {
+			this.kind = kind;
+			this.position = position;
+			this.generation = generation;
+			this.picture = picture;
+			this.pageRenderer = pageRenderer;
+			this.bitmap = bitmap;
+			this.id = id;
+			this.store = store;
+			this.pool = pool;
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public void run() {
+			// Nothing else can touch the bitmap until it's published.
+			if (kind == JOB_LOAD) {
+				bitmap = store.get(id, width, height, pool);
+			} else if (kind == JOB_SAVE) {
+				store.put(id, bitmap);
+			} else if (picture != null) {
+				picture.draw(new Canvas(bitmap));
+				rendered = true;
+			} else {
+				rendered = pageRenderer.renderPage(position, new Canvas(bitmap),
+						bitmap.getWidth(), bitmap.getHeight());
+			}
+			publish(this);
+		}
+	}
+
+	private final FlipView mFlipView;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final ConcurrentLinkedQueue<Job> mFinished = new ConcurrentLinkedQueue<Job>();
+	private final AtomicBoolean mDrainPosted = new AtomicBoolean();
+	private ThreadPoolExecutor mExecutor;
+
+	private final Runnable mDrain = new Runnable() {
+
+		@Override
+		public void run() {
+			mDrainPosted.set(false);
+			Job job;
+			while ((job = mFinished.poll()) != null) {
+				if (job.kind == JOB_LOAD) {
+					mFlipView.onSnapshotLoaded(job.position, job.generation, job.bitmap);
+				} else if (job.kind == JOB_SAVE) {
+					mFlipView.releaseSnapshotBitmap(job.bitmap);
+				} else {
+					mFlipView.onSnapshotRendered(job.position, job.generation, job.bitmap,
+							job.rendered);
+				}
+			}
+		}
+	};
+
+	SnapshotRenderer(FlipView flipView) {
+		mFlipView = flipView;
+	}
+
+	void submit(int position, int generation, Picture picture,
+			FlipView.PageRenderer pageRenderer, Bitmap bitmap) {
+		execute(new Job(JOB_RENDER, position, generation, picture, pageRenderer, bitmap, 0,
+				null, null, 0, 0));
+	}
+
+	/**
+	 * Reads a stored snapshot into a bitmap from the pool, reporting null if
+	 * there is none.
+	 */
+	void load(int position, int generation, long id, int width, int height,
+			DiskSnapshotStore store, BitmapPool pool) {
+		execute(new Job(JOB_LOAD, position, generation, null, null, null, id, store, pool,
+				width, height));
+	}
+
+	/**
+	 * Writes a snapshot to the store, after which the bitmap goes back to the
+	 * pool. The caller gives the bitmap up.
+	 */
+	void save(long id, Bitmap bitmap, DiskSnapshotStore store) {
+		execute(new Job(JOB_SAVE, -1, 0, null, null, bitmap, id, store, null, 0, 0));
+	}
+
+	private void execute(Job job) {
+		if (mExecutor == null) {
+			mExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>(), sThreadFactory);
+		}
+		mExecutor.execute(job);
+	}
+
+	private void publish(Job job) {
+		// Lock-free handoff, the UI thread adopts whatever has finished in one
+		// pass and at most one drain is ever posted.
+		mFinished.offer(job);
+		if (mDrainPosted.compareAndSet(false, true)) {
+			mHandler.post(mDrain);
+		}
+	}
+
+	/**
+	 * Drops the renders and loads that haven't started. Saves still run, so
+	 * snapshots handed over on the way out reach the store.
+	 */
+	void shutdown() {
+		if (mExecutor != null) {
+			for (Runnable runnable : mExecutor.getQueue().toArray(new Runnable[0])) {
+				final Job job = (Job) runnable;
+				if (job.kind != JOB_SAVE && mExecutor.remove(job) && job.bitmap != null) {
+					mFlipView.releaseSnapshotBitmap(job.bitmap);
+				}
+			}
+			mExecutor.shutdown();
+			mExecutor = null;
+		}
+	}
+}
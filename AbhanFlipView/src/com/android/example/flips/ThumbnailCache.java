@@ -0,0 +1,247 @@
+package com.android.example.flips;
+
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v4.util.LruCache;
+
+class ThumbnailCache {
+
+	// Rows of thumbnails either side of the visible ones still worth making.
+	private static final int WANTED_MARGIN = 12;
+
+	private static final ThreadFactory sThreadFactory = new ThreadFactory() {
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					runnable.run();
+				}
+			}, "FlipView thumbnails");
+			thread.setDaemon(true);
+			return thread;
+		}
+	};
+
+	class Job implements Runnable {
+		final int position;
+		final int generation;
+		final long id;
+		final FlipView.PageRenderer pageRenderer;
+		final DiskSnapshotStore store;
+		final int width;
+		final int height;
+		final int pageWidth;
+		final int pageHeight;
+		Bitmap bitmap;
+		boolean skipped;
+
+		Job(int position, int generation, long id, FlipView.PageRenderer pageRenderer,
+				DiskSnapshotStore store, int width, int height, int pageWidth, int pageHeight) {
+			this.position = position;
+			this.generation = generation;
+			this.id = id;
+			this.pageRenderer = pageRenderer;
+			this.store = store;
+			this.width = width;
+			this.height = height;
+			this.pageWidth = pageWidth;
+			this.pageHeight = pageHeight;
+		}
+
+		@Override
+		public void run() {
+			// Scrubbing queues far more than it keeps, drop what scrolled away.
+			if (generation == mGeneration && isWanted(position)) {
+				bitmap = render(this);
+			} else {
+				skipped = true;
+			}
+			mFinished.offer(this);
+			if (mDrainPosted.compareAndSet(false, true)) {
+				mHandler.post(mDrain);
+			}
+		}
+	}
+
+	private final FlipView mFlipView;
+	private final BitmapPool mPool;
+	private final LruCache<Integer, Bitmap> mCache;
+	private final HashSet<Integer> mPending = new HashSet<Integer>();
+	private final HashSet<Integer> mUnavailable = new HashSet<Integer>();
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final ConcurrentLinkedQueue<Job> mFinished = new ConcurrentLinkedQueue<Job>();
+	private final AtomicBoolean mDrainPosted = new AtomicBoolean();
+	private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+	private final Rect mDestination = new Rect();
+	private ExecutorService mExecutor;
+
+	private volatile int mGeneration;
+	private volatile int mWantedFirst;
+	private volatile int mWantedLast = -1;
+	private int mMargin;
+	private int mWidth;
+	private int mHeight;
+	private int mPageWidth;
+	private int mPageHeight;
+
+	private final Runnable mDrain = new Runnable() {
+
+		@Override
+		public void run() {
+			mDrainPosted.set(false);
+			Job job;
+			while ((job = mFinished.poll()) != null) {
+				if (job.generation != mGeneration) {
+					if (job.bitmap != null) {
+						mPool.put(job.bitmap);
+					}
+					continue;
+				}
+				mPending.remove(job.position);
+				if (job.bitmap != null) {
+					mCache.put(job.position, job.bitmap);
+					mFlipView.invalidate();
+				} else if (!job.skipped) {
+					mUnavailable.add(job.position);
+				} else if (isWanted(job.position)) {
+					// Scrolled back before the drain, get() queues it again.
+					mFlipView.invalidate();
+				}
+			}
+		}
+	};
+
+	ThumbnailCache(FlipView flipView, BitmapPool pool, int maxBytes) {
+		mFlipView = flipView;
+		mPool = pool;
+		mCache = new LruCache<Integer, Bitmap>(maxBytes) {
+
+			@Override
+			protected int sizeOf(Integer key, Bitmap value) {
+				return (int) BitmapPool.sizeOf(value);
+			}
+
+			@Override
+			protected void entryRemoved(boolean evicted, Integer key, Bitmap oldValue,
+					Bitmap newValue) {
+				if (oldValue != newValue) {
+					mPool.put(oldValue);
+				}
+			}
+		};
+	}
+
+	void setSize(int width, int height, int pageWidth, int pageHeight, int columns) {
+		mMargin = WANTED_MARGIN * columns;
+		if (width == mWidth && height == mHeight && pageWidth == mPageWidth
+				&& pageHeight == mPageHeight) {
+			return;
+		}
+		mWidth = width;
+		mHeight = height;
+		mPageWidth = pageWidth;
+		mPageHeight = pageHeight;
+		clear();
+	}
+
+	void setVisibleRange(int first, int last) {
+		mWantedFirst = first - mMargin;
+		mWantedLast = last + mMargin;
+	}
+
+	private boolean isWanted(int position) {
+		return position >= mWantedFirst && position <= mWantedLast;
+	}
+
+	/**
+	 * Returns the cached thumbnail, or null after queueing it if it can be
+	 * made from a PageRenderer or a stored snapshot. Pages are never bound.
+	 */
+	Bitmap get(int position, long id, FlipView.PageRenderer pageRenderer,
+			DiskSnapshotStore store) {
+		final Bitmap thumbnail = mCache.get(position);
+		if (thumbnail != null || mWidth <= 0 || mHeight <= 0
+				|| pageRenderer == null && store == null
+				|| mPending.contains(position) || mUnavailable.contains(position)) {
+			return thumbnail;
+		}
+		if (mExecutor == null) {
+			mExecutor = Executors.newSingleThreadExecutor(sThreadFactory);
+		}
+		mPending.add(position);
+		mExecutor.execute(new Job(position, mGeneration, id, pageRenderer, store, mWidth,
+				mHeight, mPageWidth, mPageHeight));
+		return null;
+	}
+
+	private Bitmap render(Job job) {
+		Bitmap stored = null;
+		if (job.store != null) {
+			stored = job.store.get(job.id, job.pageWidth, job.pageHeight, mPool);
+		}
+		if (stored == null && job.pageRenderer == null) {
+			return null;
+		}
+		final Bitmap bitmap = mPool.get(job.width, job.height, Bitmap.Config.ARGB_8888);
+		if (bitmap == null) {
+			if (stored != null) {
+				mPool.put(stored);
+			}
+			return null;
+		}
+		final Canvas canvas = new Canvas(bitmap);
+		boolean rendered = false;
+		if (stored != null) {
+			mDestination.set(0, 0, job.width, job.height);
+			canvas.drawBitmap(stored, null, mDestination, mPaint);
+			mPool.put(stored);
+			rendered = true;
+		} else {
+			rendered = job.pageRenderer.renderPage(job.position, canvas, job.width,
+					job.height);
+		}
+		if (!rendered) {
+			mPool.put(bitmap);
+			return null;
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Forgets every thumbnail, for when the pages or their size changed.
+	 * Returns the bytes handed back to the pool.
+	 */
+	long clear() {
+		final long released = mCache.size();
+		mGeneration++;
+		mPending.clear();
+		mUnavailable.clear();
+		mCache.evictAll();
+		return released;
+	}
+
+	void shutdown() {
+		if (mExecutor != null) {
+			mExecutor.shutdownNow();
+			mExecutor = null;
+		}
+		// Jobs that never ran can't come back, so nothing is pending any more.
+		mGeneration++;
+		mPending.clear();
+	}
+}
@@ -0,0 +1,179 @@
+package com.android.example.flips;
+
+import android.graphics.Bitmap;
+import android.support.v4.util.LongSparseArray;
+
+class TileCache {
+
+	static class Tile {
+		long key;
+		int position;
+		int generation = -1;
+		// The draw pass that last used it, those of the current pass are pinned.
+		int frame;
+		Bitmap bitmap;
+		// Least recently used order, most recent at the head.
+		Tile previous;
+		Tile next;
+	}
+
+	private final LongSparseArray<Tile> mTiles = new LongSparseArray<Tile>();
+	private final BitmapPool mPool;
+	private Tile mHead;
+	private Tile mTail;
+	private Tile mSpare;
+	private int mFrame;
+	private int mTileSize;
+	private long mMaxBytes;
+	private long mBytes;
+
+	TileCache(BitmapPool pool, int tileSize, long maxBytes) {
+		mPool = pool;
+		mTileSize = tileSize;
+		mMaxBytes = maxBytes;
+	}
+
+	private static long keyFor(int position, int column, int row) {
+		return (long) position << 32 | (long) (row & 0xffff) << 16 | column & 0xffff;
+	}
+
+	int getTileSize() {
+		return mTileSize;
+	}
+
+	void setTileSize(int tileSize) {
+		if (tileSize != mTileSize) {
+			clear();
+			mTileSize = tileSize;
+		}
+	}
+
+	void setMaxBytes(long maxBytes) {
+		mMaxBytes = maxBytes;
+		trimToSize(maxBytes, -1);
+	}
+
+	/**
+	 * Starts a draw pass. Tiles obtained until the next one aren't evicted
+	 * to make room for each other, a pass needing more than the maximum
+	 * overshoots it until this trims back.
+	 */
+	void beginFrame() {
+		mFrame++;
+		trimToSize(mMaxBytes, -1);
+	}
+
+	/**
+	 * Returns the tile for the given cell, which needs rendering unless its
+	 * generation matches the page's content generation. Null if no bitmap
+	 * could be had for it.
+	 */
+	Tile obtain(int position, int column, int row) {
+		final long key = keyFor(position, column, row);
+		Tile tile = mTiles.get(key);
+		if (tile != null) {
+			unlink(tile);
+			linkFirst(tile);
+			tile.frame = mFrame;
+			return tile;
+		}
+		final long size = (long) mTileSize * mTileSize * 4;
+		trim(mMaxBytes - size, -1, true);
+		final Bitmap bitmap = mPool.get(mTileSize, mTileSize, Bitmap.Config.ARGB_8888);
+		if (bitmap == null) {
+			return null;
+		}
+		tile = mSpare;
+		if (tile != null) {
+			mSpare = tile.next;
+			tile.next = null;
+		} else {
+			tile = new Tile();
+		}
+		tile.key = key;
+		tile.position = position;
+		tile.generation = -1;
+		tile.frame = mFrame;
+		tile.bitmap = bitmap;
+		mTiles.put(key, tile);
+		linkFirst(tile);
+		mBytes += BitmapPool.sizeOf(bitmap);
+		return tile;
+	}
+
+	void removePage(int position) {
+		Tile tile = mHead;
+		while (tile != null) {
+			final Tile next = tile.next;
+			if (tile.position == position) {
+				remove(tile);
+			}
+			tile = next;
+		}
+	}
+
+	/**
+	 * Evicts the least recently used tiles down to the given size, sparing
+	 * the given page unless it is -1. Returns the bytes released.
+	 */
+	long trimToSize(long maxBytes, int keepPosition) {
+		return trim(maxBytes, keepPosition, false);
+	}
+
+	private long trim(long maxBytes, int keepPosition, boolean keepFrame) {
+		long released = 0;
+		Tile tile = mTail;
+		while (tile != null && mBytes > maxBytes) {
+			final Tile previous = tile.previous;
+			if (tile.position != keepPosition && !(keepFrame && tile.frame == mFrame)) {
+				released += BitmapPool.sizeOf(tile.bitmap);
+				remove(tile);
+			}
+			tile = previous;
+		}
+		return released;
+	}
+
+	long clear() {
+		final long released = trimToSize(-1, -1);
+		mSpare = null;
+		return released;
+	}
+
+	private void remove(Tile tile) {
+		unlink(tile);
+		mTiles.remove(tile.key);
+		mBytes -= BitmapPool.sizeOf(tile.bitmap);
+		mPool.put(tile.bitmap);
+		tile.bitmap = null;
+		tile.next = mSpare;
+		mSpare = tile;
+	}
+
+	private void linkFirst(Tile tile) {
+		tile.previous = null;
+		tile.next = mHead;
+		if (mHead != null) {
+			mHead.previous = tile;
+		}
+		mHead = tile;
+		if (mTail == null) {
+			mTail = tile;
+		}
+	}
+
+	private void unlink(Tile tile) {
+		if (tile.previous != null) {
+			tile.previous.next = tile.next;
+		} else {
+			mHead = tile.next;
+		}
+		if (tile.next != null) {
+			tile.next.previous = tile.previous;
+		} else {
+			mTail = tile.previous;
+		}
+		tile.previous = null;
+		tile.next = null;
+	}
+}